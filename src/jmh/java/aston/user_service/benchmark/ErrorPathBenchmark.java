@@ -0,0 +1,84 @@
+package aston.user_service.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import user_service.exception.BadRequestException;
+import user_service.exception.DuplicateEmailException;
+import user_service.exception.GlobalExceptionHandler;
+import user_service.exception.NotFoundException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Путь ошибки: создание доменного исключения (как в orElseThrow сервиса)
+ * и построение ответа в {@link GlobalExceptionHandler} вместе с сериализацией тела,
+ * как ее сделал бы конвертер сообщений (byte[] пишется как есть).
+ * {@code problemDetails}: тело {"error","message"} или заранее сериализованный problem+json.
+ * {@code depth}: сколько кадров над местом создания исключения, как в настоящем запросе
+ * (фильтры, интерсепторы, прокси) — от этого зависит цена заполнения стека.
+ * {@code notFoundWithStackTrace} — прежнее исключение со стеком и сообщением через конкатенацию.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+
+    @Param({"false", "true"})
+    private boolean problemDetails;
+
+    @Param({"0", "120"})
+    private int depth;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private GlobalExceptionHandler handler;
+    private long id = 42L;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler(problemDetails);
+    }
+
+    @Benchmark
+    public byte[] notFound() {
+        return atDepth(depth, () -> handler.handleNotFound(NotFoundException.user("id", id)));
+    }
+
+    @Benchmark
+    public byte[] notFoundWithStackTrace() {
+        return atDepth(depth, () -> {
+            StackfulNotFoundException e = new StackfulNotFoundException("User not found with id: " + id);
+            return handler.handleNotFound(new NotFoundException(e.getMessage()));
+        });
+    }
+
+    @Benchmark
+    public byte[] badRequest() {
+        return atDepth(depth, () -> handler.handleBadRequest(new BadRequestException("Invalid cursor: abc")));
+    }
+
+    @Benchmark
+    public byte[] duplicateEmail() {
+        return atDepth(depth, () -> handler.handleDuplicateEmail(
+                new DuplicateEmailException("User with email already exists: ivan@example.com")));
+    }
+
+    private byte[] atDepth(int depth, Supplier<ResponseEntity<?>> action) {
+        return depth == 0 ? render(action.get()) : atDepth(depth - 1, action);
+    }
+
+    private byte[] render(ResponseEntity<?> response) {
+        return response.getBody() instanceof byte[] body ? body : jsonMapper.writeValueAsBytes(response.getBody());
+    }
+
+    /** Исключение в прежнем виде: обычный RuntimeException с заполнением стека. */
+    private static final class StackfulNotFoundException extends RuntimeException {
+        StackfulNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package aston.user_service.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.HalJacksonModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import user_service.dto.UserPage;
+import user_service.dto.UserResponse;
+import user_service.hateoas.UserModelAssembler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Полная стоимость ответа для каждого представления: HAL (сборка ссылок + JSON),
+ * JSON без ссылок и CBOR. Размер ответа печатается в {@code @Setup}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserEncodingBenchmark {
+    private static final int PAGE_SIZE = 500;
+
+    @Param({"hal", "json", "cbor"})
+    private String encoding;
+
+    private Function<UserResponse, byte[]> single;
+    private Function<List<UserResponse>, byte[]> page;
+    private UserResponse user;
+    private List<UserResponse> users;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        user = new UserResponse(1L, "Ivan", "ivan@example.com", 25, createdAt, createdAt, 0L);
+        users = IntStream.range(0, PAGE_SIZE)
+                .mapToObj(i -> new UserResponse((long) i, "user" + i, "user" + i + "@example.com", i % 100, createdAt, createdAt, 0L))
+                .toList();
+
+        switch (encoding) {
+            case "hal" -> {
+                UserModelAssembler assembler = new UserModelAssembler();
+                JsonMapper halMapper = JsonMapper.builder()
+                        .addModule(new HalJacksonModule())
+                        .handlerInstantiator(new HalJacksonModule.HalHandlerInstantiator(
+                                new EvoInflectorLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY))
+                        .build();
+                single = u -> halMapper.writeValueAsBytes(assembler.toModel(u));
+                page = list -> halMapper.writeValueAsBytes(assembler.toCollectionModel(list));
+            }
+            case "json" -> plain(JsonMapper.builder().build());
+            case "cbor" -> plain(CBORMapper.builder().build());
+            default -> throw new IllegalArgumentException(encoding);
+        }
+        System.out.printf("%n%s: single=%d bytes, page(%d)=%d bytes%n",
+                encoding, single.apply(user).length, PAGE_SIZE, page.apply(users).length);
+    }
+
+    private void plain(ObjectMapper mapper) {
+        single = mapper::writeValueAsBytes;
+        page = list -> mapper.writeValueAsBytes(new UserPage(list, "cursor"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public byte[] renderSingle() {
+        return single.apply(user);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] renderPage() {
+        return page.apply(users);
+    }
+}
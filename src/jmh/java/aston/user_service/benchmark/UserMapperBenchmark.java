@@ -0,0 +1,45 @@
+package aston.user_service.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import user_service.dto.UserCreateRequest;
+import user_service.dto.UserResponse;
+import user_service.mapper.UserMapper;
+import user_service.model.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования entity <-> DTO в {@link UserMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+
+    private final UserMapper userMapper = new UserMapper();
+    private User user;
+    private UserCreateRequest request;
+
+    @Setup
+    public void setUp() {
+        user = new User(1L, "Ivan", "ivan@example.com", 25, LocalDateTime.now(), LocalDateTime.now(), 0L);
+        request = new UserCreateRequest();
+        request.setName("Ivan");
+        request.setEmail("ivan@example.com");
+        request.setAge(25);
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return userMapper.toResponse(user);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return userMapper.toEntity(request);
+    }
+}
@@ -0,0 +1,107 @@
+package aston.user_service.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.HalJacksonModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.dto.UserResponse;
+import user_service.hateoas.UserModelAssembler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сборка HAL-представлений в {@link UserModelAssembler} и их сериализация Jackson,
+ * для одного пользователя и для коллекции из 10k.
+ * Контекст запроса имитируется {@link MockHttpServletRequest}, как в контроллере;
+ * {@code precomputedLinks} сравнивает ссылки по шаблонам и через {@code methodOn}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserRenderingBenchmark {
+    private static final int COLLECTION_SIZE = 10_000;
+
+    @Param({"true", "false"})
+    private boolean precomputedLinks;
+
+    private UserModelAssembler assembler;
+    private JsonMapper halMapper;
+    private UserResponse user;
+    private List<UserResponse> users;
+    private EntityModel<UserResponse> userModel;
+    private CollectionModel<EntityModel<UserResponse>> usersModel;
+
+    @Setup
+    public void setUp() {
+        assembler = new UserModelAssembler(precomputedLinks);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        halMapper = JsonMapper.builder()
+                .addModule(new HalJacksonModule())
+                .handlerInstantiator(new HalJacksonModule.HalHandlerInstantiator(
+                        new EvoInflectorLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY))
+                .build();
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        user = new UserResponse(1L, "Ivan", "ivan@example.com", 25, createdAt, createdAt, 0L);
+        users = IntStream.range(0, COLLECTION_SIZE)
+                .mapToObj(i -> new UserResponse((long) i, "user" + i, "user" + i + "@example.com", i % 100, createdAt, createdAt, 0L))
+                .toList();
+        userModel = assembler.toModel(user);
+        usersModel = assembler.toCollectionModel(users);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public EntityModel<UserResponse> assembleSingle() {
+        return assembler.toModel(user);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public CollectionModel<EntityModel<UserResponse>> assembleCollection10k() {
+        return assembler.toCollectionModel(users);
+    }
+
+    @Benchmark
+    public byte[] serializeSingle() {
+        return halMapper.writeValueAsBytes(userModel);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] serializeCollection10k() {
+        return halMapper.writeValueAsBytes(usersModel);
+    }
+
+    @Benchmark
+    public byte[] renderSingle() {
+        return halMapper.writeValueAsBytes(assembler.toModel(user));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] renderCollection10k() {
+        return halMapper.writeValueAsBytes(assembler.toCollectionModel(users));
+    }
+}
@@ -0,0 +1,133 @@
+package user_service.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counting Bloom filter по строкам: 4-битные счетчики, по 16 в одном long,
+ * позиции — двойное хеширование (Kirsch–Mitzenmacher). В отличие от обычного
+ * фильтра поддерживает удаление. Счетчик, дошедший до 15, больше не меняется:
+ * переполнение дает только ложноположительные ответы, но не ложноотрицательные.
+ * Удалять можно только то, что было добавлено. Потокобезопасен без блокировок.
+ */
+public class CountingBloomFilter {
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashes;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * @param expectedInsertions ожидаемое число элементов
+     * @param falsePositiveRate  допустимая доля ложноположительных ответов при этом числе
+     */
+    public CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = Math.toIntExact((bits + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        this.words = new AtomicLongArray(wordCount);
+        this.counters = (long) wordCount * COUNTERS_PER_WORD;
+        this.hashes = Math.max(1, (int) Math.round((double) counters / expectedInsertions * ln2));
+    }
+
+    public void add(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            increment(Math.floorMod(h1 + i * h2, counters));
+        }
+        size.increment();
+    }
+
+    public void remove(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            decrement(Math.floorMod(h1 + i * h2, counters));
+        }
+        size.decrement();
+    }
+
+    /**
+     * @return false — значения точно нет; true — значение, возможно, есть
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long index = Math.floorMod(h1 + i * h2, counters);
+            if (counter(words.get(word(index)), index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Приблизительное число элементов: добавления минус удаления.
+     */
+    public long approximateSize() {
+        return size.sum();
+    }
+
+    public int hashFunctions() {
+        return hashes;
+    }
+
+    private void increment(long index) {
+        int word = word(index);
+        long current;
+        do {
+            current = words.get(word);
+            if (counter(current, index) == COUNTER_MASK) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current + (1L << shift(index))));
+    }
+
+    private void decrement(long index) {
+        int word = word(index);
+        long current;
+        do {
+            current = words.get(word);
+            long counter = counter(current, index);
+            if (counter == 0 || counter == COUNTER_MASK) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current - (1L << shift(index))));
+    }
+
+    private static int word(long index) {
+        return (int) (index / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    private static long counter(long word, long index) {
+        return (word >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
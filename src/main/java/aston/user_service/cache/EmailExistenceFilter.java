@@ -0,0 +1,261 @@
+package user_service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import user_service.repository.UserJdbcRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фильтр существующих email ({@link CountingBloomFilter}) для ответа «такого email точно нет»
+ * без запроса к БД. Заполняется чтением всей таблицы users и дальше поддерживается
+ * сервисом и событиями {@link user_service.kafka.UserCacheCoherenceListener}.
+ * <p>
+ * Таблица читается, когда слушателю назначены партиции и его позиции уже определены:
+ * событие любого изменения, зафиксированного после начала чтения, слушатель получит.
+ * Без слушателя фильтр не строится.
+ * <p>
+ * Пока фильтр не построен (или выключен), {@link #mightExist} всегда true и все идет в БД.
+ * <p>
+ * Свои изменения сервис добавляет в фильтр сразу. Изменение другого экземпляра попадает
+ * в фильтр только с событием, поэтому отрицательный ответ означает «неизвестно», пока
+ * фильтр не видел все события outbox до последнего выданного seq_no. Видимые seq_no
+ * (заголовок {@link user_service.kafka.UserEventProducer#SEQ_NO_HEADER}) сводятся в сплошную
+ * границу: все seq_no не больше нее уже применены, поэтому события одной пачки релея,
+ * прочитанные из разных партиций не по порядку, не открывают окно устаревшего ответа.
+ * Последний выданный seq_no читается из последовательности outbox раз в
+ * {@code app.email-filter.sync-check-interval}.
+ * <p>
+ * Некоторые seq_no события не получат никогда, и граница через них переступает:
+ * <ul>
+ *   <li>событие перенесено в user_outbox_dead_letter;</li>
+ *   <li>транзакция, получившая seq_no, откатилась. Такой seq_no пропускается, когда
+ *   его нет ни в outbox, ни в dead letter, все транзакции, начатые до его обнаружения,
+ *   завершены и после этого прошло {@code app.email-filter.gap-timeout}: за это время
+ *   слушатель получил бы событие, если оно было доставлено. Транзакция успевает
+ *   получить xid до seq_no: строка users пишется раньше строки outbox.</li>
+ * </ul>
+ * Пока граница ниже последнего выданного seq_no, проверки идут в БД.
+ * <p>
+ * Добавления учитываются всегда, свои — дважды (сервисом и событием): лишний счетчик
+ * дает лишь ложноположительный ответ. Удаление приходит только событием DELETE
+ * и применяется, только если его строка outbox записана после начала чтения таблицы:
+ * тогда email был прочитан и учтен. Уменьшение счетчика, который не увеличивался,
+ * задело бы чужие email, поэтому более ранние удаления пропускаются. Прежний email
+ * после смены не удаляется и только дает лишний запрос к БД.
+ */
+@Component
+public class EmailExistenceFilter implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(EmailExistenceFilter.class);
+    // Не больше стольких еще не виденных seq_no проверяется в БД за раз
+    private static final int GAP_CHECK_LIMIT = 1000;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final boolean enabled;
+    private final CountingBloomFilter filter;
+    private final Duration gapTimeout;
+    private final LongAdder definiteMisses = new LongAdder();
+    // Под блокировкой this: seq_no больше границы, уже виденные, и seq_no, которые ждут пропуска
+    private final TreeSet<Long> seenAboveWatermark = new TreeSet<>();
+    private final Map<Long, Gap> gaps = new HashMap<>();
+    private volatile long watermark;
+    private volatile boolean built;
+    private volatile long builtAtSeqNo;
+    private volatile long lastIssuedSeqNo;
+
+    public EmailExistenceFilter(UserJdbcRepository userJdbcRepository,
+                                @Value("${app.email-filter.enabled:${app.cache.coherence.enabled:true}}") boolean enabled,
+                                @Value("${app.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${app.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${app.email-filter.gap-timeout:30s}") Duration gapTimeout) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.enabled = enabled;
+        this.gapTimeout = gapTimeout;
+        this.filter = new CountingBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * Читает таблицу users; вызывается слушателем после назначения партиций,
+     * позиции которых стоят в конце. Повторный вызов после успешного построения
+     * таблицу не читает.
+     */
+    public void build() {
+        if (!enabled) {
+            logger.info("Фильтр email выключен, проверки email идут в БД");
+            return;
+        }
+        if (built) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            builtAtSeqNo = userJdbcRepository.streamEmails(filter::add);
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось построить фильтр email, проверки email идут в БД", e);
+            return;
+        }
+        synchronized (this) {
+            watermark = Math.max(watermark, builtAtSeqNo);
+            advanceWatermark();
+        }
+        built = true;
+        logger.info("Фильтр email построен: {} адресов за {} мс",
+                filter.approximateSize(), (System.nanoTime() - started) / 1_000_000);
+        refreshSyncState();
+    }
+
+    /**
+     * Запоминает последний выданный seq_no outbox и проверяет в БД еще не виденные
+     * seq_no до него: перенесенные в dead letter и откатившиеся пропускаются.
+     */
+    @Scheduled(fixedDelayString = "${app.email-filter.sync-check-interval:500ms}")
+    public void refreshSyncState() {
+        if (!built) {
+            return;
+        }
+        try {
+            lastIssuedSeqNo = userJdbcRepository.lastOutboxSeqNo();
+            List<Long> unseen = unseenSeqNos(lastIssuedSeqNo);
+            if (!unseen.isEmpty()) {
+                resolveGaps(unseen, userJdbcRepository.outboxSeqNoStatus(unseen), System.nanoTime());
+            }
+        } catch (DataAccessException e) {
+            logger.debug("Не удалось проверить seq_no outbox, проверки email идут в БД", e);
+            lastIssuedSeqNo = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Слушатель применил событие со строкой outbox {@code outboxSeqNo}.
+     */
+    public synchronized void seen(long outboxSeqNo) {
+        if (outboxSeqNo <= watermark) {
+            return;
+        }
+        seenAboveWatermark.add(outboxSeqNo);
+        gaps.remove(outboxSeqNo);
+        advanceWatermark();
+    }
+
+    private synchronized List<Long> unseenSeqNos(long upTo) {
+        List<Long> unseen = new ArrayList<>();
+        for (long seqNo = watermark + 1; seqNo <= upTo && unseen.size() < GAP_CHECK_LIMIT; seqNo++) {
+            if (!seenAboveWatermark.contains(seqNo)) {
+                unseen.add(seqNo);
+            }
+        }
+        return unseen;
+    }
+
+    private synchronized void resolveGaps(List<Long> unseen, UserJdbcRepository.OutboxSeqNoStatus status,
+                                          long now) {
+        for (Long seqNo : unseen) {
+            if (seqNo <= watermark || seenAboveWatermark.contains(seqNo)) {
+                continue;
+            }
+            if (status.deadLettered().contains(seqNo)) {
+                skip(seqNo);
+            } else if (status.pending().contains(seqNo)) {
+                gaps.remove(seqNo);
+            } else {
+                Gap gap = gaps.get(seqNo);
+                if (gap == null) {
+                    gaps.put(seqNo, new Gap(status.xmax(), null));
+                } else if (gap.absentSince() == null) {
+                    if (status.xmin() >= gap.startedBeforeXid()) {
+                        gaps.put(seqNo, new Gap(gap.startedBeforeXid(), now));
+                    }
+                } else if (now - gap.absentSince() >= gapTimeout.toNanos()) {
+                    logger.debug("Фильтр email: события с seq_no {} нет, seq_no пропущен", seqNo);
+                    skip(seqNo);
+                }
+            }
+        }
+        advanceWatermark();
+    }
+
+    private void skip(long seqNo) {
+        seenAboveWatermark.add(seqNo);
+        gaps.remove(seqNo);
+    }
+
+    private void advanceWatermark() {
+        long next = watermark;
+        while (!seenAboveWatermark.isEmpty() && seenAboveWatermark.first() <= next + 1) {
+            next = Math.max(next, seenAboveWatermark.pollFirst());
+        }
+        watermark = next;
+    }
+
+    /**
+     * Событие с seq_no не видно ни в outbox, ни слушателю.
+     *
+     * @param startedBeforeXid транзакция, получившая seq_no, имеет меньший xid
+     * @param absentSince      {@link System#nanoTime()}, когда все такие транзакции уже были
+     *                         завершены, а строки все еще не было; null — еще нет
+     */
+    private record Gap(long startedBeforeXid, Long absentSince) {
+    }
+
+    /**
+     * @param email нормализованный email
+     * @return false — пользователя с таким email точно нет
+     */
+    public boolean mightExist(String email) {
+        if (!isReady() || filter.mightContain(email)) {
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    public void added(String email) {
+        if (enabled) {
+            filter.add(email);
+        }
+    }
+
+    /**
+     * @param outboxSeqNo seq_no строки outbox события DELETE
+     */
+    public void removed(String email, long outboxSeqNo) {
+        if (built && outboxSeqNo > builtAtSeqNo) {
+            filter.remove(email);
+        }
+    }
+
+    /**
+     * Построен и видел все события outbox до последнего выданного seq_no:
+     * отрицательный ответ {@link #mightExist} верен.
+     */
+    public boolean isReady() {
+        return built && watermark >= lastIssuedSeqNo;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.email_filter.ready", this, f -> f.isReady() ? 1 : 0)
+                .description("1, если фильтр email построен, видел все события outbox и используется")
+                .register(registry);
+        Gauge.builder("users.email_filter.size", filter, CountingBloomFilter::approximateSize)
+                .description("Приблизительное число email в фильтре")
+                .register(registry);
+        FunctionCounter.builder("users.email_filter.definite_misses", definiteMisses, LongAdder::sum)
+                .description("Проверки email, отвеченные без запроса к БД")
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package user_service.cache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных загрузок одного ключа: первый вызов (ведущий) выполняет
+ * загрузку в своем потоке, остальные ждут его результат или исключение.
+ * После завершения ключ освобождается — результаты не кэшируются.
+ * Ожидающий ждет не дольше {@code timeout}, затем загружает сам: зависшая загрузка
+ * задерживает остальных, но не останавливает их. Так же он поступает при прерывании.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            leaders.increment();
+            try {
+                V value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (Throwable e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return existing.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (TimeoutException e) {
+            timeouts.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return loader.get();
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /** Загрузки, выполненные ведущими. */
+    public long leaders() {
+        return leaders.sum();
+    }
+
+    /** Вызовы, присоединившиеся к чужой загрузке (включая не дождавшиеся ее). */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /** Присоединившиеся, которые не дождались загрузки и загрузили сами. */
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    /** Ключи, загрузка которых идет сейчас. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,151 @@
+package user_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import user_service.dto.UserResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Локальный кэш {@link UserResponse} по id с вторичным индексом email -> id.
+ * Вытеснение по размеру (W-TinyLFU) и по времени жизни записи.
+ * Индекс по email может ссылаться на устаревшую запись: при чтении
+ * email сверяется с закэшированным ответом, расхождение считается промахом.
+ * Поиск по email учитывается только в статистике индекса email.
+ * Статистика публикуется как метрики cache.* (name=users.byId, users.byEmail).
+ * <p>
+ * Изменения, сделанные этим экземпляром (после фиксации) и другими экземплярами
+ * (событием), приходят через {@link #applyChange}: запись вытесняется, а для id
+ * запоминается минимальная актуальная версия. Ответ, прочитанный из БД до изменения
+ * или с отстающей реплики и положенный в кэш после вытеснения, отбрасывается
+ * в {@link #put} по версии. Проверка версии в {@link #put} и ее повышение
+ * в {@link #applyChange} идут под блокировкой записи id ({@code compute}),
+ * поэтому между проверкой и записью версия повыситься не может.
+ */
+@Component
+public class UserCache implements MeterBinder {
+    private final Cache<Long, UserResponse> byId;
+    private final Cache<String, Long> idByEmail;
+    private final Cache<Long, Long> minVersions;
+
+    public UserCache(@Value("${app.cache.users.max-size:100000}") long maxSize,
+                     @Value("${app.cache.users.ttl:10m}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.minVersions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<UserResponse> getById(Long id) {
+        return Optional.ofNullable(byId.getIfPresent(id));
+    }
+
+    public Optional<UserResponse> getByEmail(String email) {
+        Long id = idByEmail.getIfPresent(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        UserResponse cached = byId.asMap().get(id);
+        if (cached == null || !email.equals(cached.getEmail())) {
+            return Optional.empty();
+        }
+        return Optional.of(cached);
+    }
+
+    /**
+     * Кладет ответ, если его версия не ниже минимальной актуальной и не ниже
+     * уже закэшированной.
+     */
+    public void put(UserResponse user) {
+        UserResponse stored = byId.asMap().compute(user.getId(), (id, cached) -> {
+            Long minVersion = minVersions.getIfPresent(id);
+            if (minVersion != null && user.getVersion() < minVersion) {
+                return cached;
+            }
+            if (cached != null && cached.getVersion() > user.getVersion()) {
+                return cached;
+            }
+            return user;
+        });
+        if (stored == user) {
+            idByEmail.put(user.getEmail(), user.getId());
+        }
+    }
+
+    public void evict(Long id) {
+        UserResponse removed = byId.asMap().remove(id);
+        if (removed != null) {
+            idByEmail.asMap().remove(removed.getEmail(), id);
+        }
+    }
+
+    public void evictByEmail(String email) {
+        Long id = idByEmail.getIfPresent(email);
+        if (id != null) {
+            evict(id);
+        }
+    }
+
+    /**
+     * Применяет изменение пользователя {@code id}, сделанное где угодно в кластере.
+     * Запись с той же или более новой версией остается в кэше; после удаления
+     * пользователь больше не кэшируется, пока не истечет ttl.
+     *
+     * @param version версия после изменения или null, если неизвестна
+     */
+    public void applyChange(Long id, Long version, boolean deleted) {
+        long minVersion = deleted || version == null ? Long.MAX_VALUE : version;
+        UserResponse[] evicted = new UserResponse[1];
+        byId.asMap().compute(id, (key, cached) -> {
+            minVersions.asMap().merge(key, minVersion, Math::max);
+            if (cached != null && cached.getVersion() < minVersion) {
+                evicted[0] = cached;
+                return null;
+            }
+            return cached;
+        });
+        if (evicted[0] != null) {
+            idByEmail.asMap().remove(evicted[0].getEmail(), id);
+        }
+    }
+
+    public void evictAll() {
+        byId.invalidateAll();
+        idByEmail.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(registry, idByEmail, "users.byEmail");
+    }
+
+    public long size() {
+        return byId.estimatedSize();
+    }
+
+    public CacheStats byIdStats() {
+        return byId.stats();
+    }
+
+    public CacheStats byEmailStats() {
+        return idByEmail.stats();
+    }
+}
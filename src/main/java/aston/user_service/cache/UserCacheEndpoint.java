@@ -0,0 +1,38 @@
+package user_service.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Статистика {@link UserCache}: {@code GET /actuator/usercache}.
+ */
+@Component
+@Endpoint(id = "usercache")
+@RequiredArgsConstructor
+public class UserCacheEndpoint {
+    private final UserCache userCache;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", userCache.size());
+        body.put("byId", toMap(userCache.byIdStats()));
+        body.put("byEmail", toMap(userCache.byEmailStats()));
+        return body;
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("hits", stats.hitCount());
+        body.put("misses", stats.missCount());
+        body.put("hitRate", stats.hitRate());
+        body.put("evictions", stats.evictionCount());
+        return body;
+    }
+}
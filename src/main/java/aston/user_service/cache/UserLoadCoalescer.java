@@ -0,0 +1,76 @@
+package user_service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import user_service.datasource.ReadYourWrites;
+import user_service.dto.UserResponse;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Одновременные промахи {@link UserCache} по одному id или email разделяют одну загрузку
+ * из БД ({@link SingleFlight}): после деплоя или вытеснения популярный профиль
+ * не запрашивается сотнями одинаковых запросов.
+ * <p>
+ * Запросы, закрепленные за primary окном {@link ReadYourWrites}, не объединяются:
+ * загрузка с реплики могла бы не увидеть их собственную запись.
+ * Метрики users.single_flight.* с тегом operation (getById, getByEmail).
+ */
+@Component
+public class UserLoadCoalescer implements MeterBinder {
+    private final boolean enabled;
+    private final SingleFlight<Long, UserResponse> byId;
+    private final SingleFlight<String, UserResponse> byEmail;
+
+    public UserLoadCoalescer(@Value("${app.single-flight.enabled:true}") boolean enabled,
+                             @Value("${app.single-flight.timeout:2s}") Duration timeout) {
+        this.enabled = enabled;
+        this.byId = new SingleFlight<>(timeout);
+        this.byEmail = new SingleFlight<>(timeout);
+    }
+
+    public UserResponse byId(Long id, Supplier<UserResponse> loader) {
+        return load(byId, id, loader);
+    }
+
+    public UserResponse byEmail(String email, Supplier<UserResponse> loader) {
+        return load(byEmail, email, loader);
+    }
+
+    private <K> UserResponse load(SingleFlight<K, UserResponse> flight, K key, Supplier<UserResponse> loader) {
+        if (!enabled || ReadYourWrites.isPinned()) {
+            return loader.get();
+        }
+        return flight.execute(key, loader);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "getById", byId);
+        bind(registry, "getByEmail", byEmail);
+    }
+
+    private static void bind(MeterRegistry registry, String operation, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("users.single_flight.loads", flight, SingleFlight::leaders)
+                .description("Загрузки из БД, выполненные ведущим запросом")
+                .tag("operation", operation)
+                .register(registry);
+        FunctionCounter.builder("users.single_flight.coalesced", flight, SingleFlight::coalesced)
+                .description("Запросы, присоединившиеся к уже идущей загрузке того же ключа")
+                .tag("operation", operation)
+                .register(registry);
+        FunctionCounter.builder("users.single_flight.timeouts", flight, SingleFlight::timeouts)
+                .description("Присоединившиеся запросы, не дождавшиеся загрузки и загрузившие сами")
+                .tag("operation", operation)
+                .register(registry);
+        Gauge.builder("users.single_flight.in_flight", flight, SingleFlight::inFlight)
+                .description("Ключи, загрузка которых идет сейчас")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,52 @@
+package user_service.cache;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import user_service.model.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Вытесняет {@link User} из кэша второго уровня Hibernate, когда строка изменена мимо Hibernate:
+ * SQL из {@link user_service.repository.UserJdbcRepository} или другим экземпляром сервиса.
+ * Внутри транзакции запись вытесняется сразу и еще раз после ее завершения: чтение,
+ * начатое до фиксации, иначе вернуло бы в кэш прежнее состояние строки.
+ * <p>
+ * Связь email -> id отдельно не вытесняется: {@code UserRepository#findByEmail}
+ * сверяет email найденного пользователя и сам убирает устаревшую связь.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSecondLevelCache {
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evict(Long id) {
+        evictAll(List.of(id));
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(User.class, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> evicted = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evicted.forEach(id -> cache.evict(User.class, id));
+                }
+            });
+        }
+    }
+
+    public boolean contains(Long id) {
+        return entityManagerFactory.getCache().contains(User.class, id);
+    }
+}
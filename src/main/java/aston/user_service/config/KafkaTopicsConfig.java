@@ -0,0 +1,29 @@
+package user_service.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Топики, которые создает сам сервис (через KafkaAdmin при старте).
+ */
+@Configuration
+public class KafkaTopicsConfig {
+
+    /**
+     * Топик снимков пользователей: compaction оставляет последнюю запись по id,
+     * tombstone удаленных пользователей хранятся сутки, чтобы потребители успели их прочитать.
+     */
+    @Bean
+    public NewTopic userSnapshotTopic(@Value("${app.kafka.snapshot-topic:users-state}") String topic,
+                                      @Value("${app.kafka.snapshot-partitions:6}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, "86400000")
+                .build();
+    }
+}
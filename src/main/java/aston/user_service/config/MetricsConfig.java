@@ -0,0 +1,89 @@
+package user_service.config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import user_service.metrics.RepositoryMetricsInterceptor;
+import user_service.metrics.ServiceMetricsInterceptor;
+import user_service.metrics.UserMetrics;
+import user_service.repository.UserJdbcRepository;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Таймеры на все методы {@link Service}-бинов. Advisor внешний по отношению
+     * к транзакции и ограничению конкурентности, поэтому время включает commit
+     * и ожидание разрешения.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor serviceMetricsAdvisor(ObjectProvider<UserMetrics> userMetrics) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forClassAnnotation(Service.class),
+                new ServiceMetricsInterceptor(userMetrics));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * Таймеры на методы {@link UserJdbcRepository}: обновления, удаления и пакетные
+     * операции идут через него, а не через Spring Data, и не попадают
+     * в spring.data.repository.invocations.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor repositoryMetricsAdvisor(ObjectProvider<UserMetrics> userMetrics) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new ComposablePointcut(new RootClassFilter(UserJdbcRepository.class)),
+                new RepositoryMetricsInterceptor(userMetrics));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * Регистрирует таймеры успешных операций и подтвержденных отправок при старте.
+     */
+    @Bean
+    SmartInitializingSingleton userMetricsRegistration(ApplicationContext context, UserMetrics userMetrics,
+                                                       @Value("${app.kafka.topic}") String topic,
+                                                       @Value("${app.kafka.snapshot-topic:users-state}") String snapshotTopic) {
+        return () -> {
+            for (Object service : context.getBeansWithAnnotation(Service.class).values()) {
+                Class<?> type = AopUtils.getTargetClass(service);
+                userMetrics.registerServiceOperations(type.getSimpleName(), publicMethodNames(type));
+            }
+            userMetrics.registerDbOperations(UserJdbcRepository.class.getSimpleName(),
+                    publicMethodNames(UserJdbcRepository.class));
+            userMetrics.registerKafkaTopic(topic);
+            userMetrics.registerKafkaTopic(snapshotTopic);
+        };
+    }
+
+    private static List<String> publicMethodNames(Class<?> type) {
+        return Arrays.stream(type.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()))
+                .filter(method -> !Modifier.isStatic(method.getModifiers()) && !method.isSynthetic())
+                .map(Method::getName)
+                .distinct()
+                .toList();
+    }
+}
@@ -0,0 +1,40 @@
+package user_service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import user_service.metrics.UserMetrics;
+import user_service.ratelimit.RateLimitProperties;
+import user_service.ratelimit.RequestLimiters;
+import user_service.web.ClientIdentity;
+import user_service.web.RateLimitInterceptor;
+
+/**
+ * Лимиты частоты и конкурентности для {@code /api/**}; выключаются
+ * {@code app.rate-limit.enabled=false}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(prefix = "app.rate-limit", name = "enabled", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public RequestLimiters requestLimiters(RateLimitProperties properties) {
+        return new RequestLimiters(properties);
+    }
+
+    @Bean
+    public WebMvcConfigurer rateLimitWebMvcConfigurer(RequestLimiters requestLimiters, ClientIdentity clientIdentity,
+                                                      UserMetrics userMetrics) {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(requestLimiters, clientIdentity, userMetrics);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
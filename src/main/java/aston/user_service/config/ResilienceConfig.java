@@ -0,0 +1,41 @@
+package user_service.config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import user_service.ratelimit.DbConcurrencyLimit;
+import user_service.ratelimit.DbConcurrencyLimitInterceptor;
+import user_service.ratelimit.DbConcurrencyLimiter;
+
+import java.time.Duration;
+
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static DbConcurrencyLimiter dbConcurrencyLimiter(@Value("${app.concurrency.service-limit:-1}") int limit,
+                                                     @Value("${app.concurrency.max-wait:1s}") Duration maxWait) {
+        return new DbConcurrencyLimiter(limit, maxWait);
+    }
+
+    /**
+     * Лимит конкурентности на методы с {@link DbConcurrencyLimit}. Advisor снаружи
+     * транзакции: разрешение берется до того, как транзакция займет соединение.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor dbConcurrencyLimitAdvisor(DbConcurrencyLimiter dbConcurrencyLimiter) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(DbConcurrencyLimit.class),
+                new DbConcurrencyLimitInterceptor(dbConcurrencyLimiter));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+}
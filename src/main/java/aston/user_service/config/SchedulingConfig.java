@@ -0,0 +1,12 @@
+package user_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Фоновые задачи: доставка outbox в Kafka.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
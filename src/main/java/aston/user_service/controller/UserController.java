@@ -6,18 +6,46 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springdoc.core.annotations.ParameterObject;
 import user_service.hateoas.UserModelAssembler;
+import user_service.dto.UserBatchCreateRequest;
+import user_service.dto.UserBatchCreateResponse;
+import user_service.dto.UserBulkDeleteRequest;
+import user_service.dto.UserBulkDeleteResponse;
 import user_service.dto.UserCreateRequest;
+import user_service.dto.UserImportResponse;
+import user_service.dto.UserLookupRequest;
+import user_service.dto.UserLookupResponse;
+import user_service.dto.UserPage;
 import user_service.dto.UserPatchRequest;
 import user_service.dto.UserResponse;
+import user_service.dto.UserSearchRequest;
+import user_service.ratelimit.BulkRequest;
+import user_service.ratelimit.ReadOnlyRequest;
+import user_service.service.UserCsv;
 import user_service.service.UserService;
+import user_service.service.UserTransferService;
+import user_service.web.UserETags;
+import user_service.web.UserMediaTypes;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @RestController
 @RequestMapping("/api/users")
@@ -25,7 +53,10 @@ import java.util.List;
 @Tag(name = "Users", description = "Операции с пользователями")
 public class UserController {
 
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
     private final UserService userService;
+    private final UserTransferService userTransferService;
     private final UserModelAssembler assembler;
 
     @Operation(summary = "Создать пользователя")
@@ -39,14 +70,57 @@ public class UserController {
         return assembler.toModel(userService.create(request));
     }
 
-    @Operation(summary = "Получить пользователя по ID")
+    @Operation(summary = "Создать пользователей пакетом",
+            description = "Занятые email не прерывают пакет, а возвращаются в списке errors.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Пакет обработан"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации")
+    })
+    @BulkRequest
+    @PostMapping("/batch")
+    public UserBatchCreateResponse createBatch(@Valid @RequestBody UserBatchCreateRequest request) {
+        return userService.createBatch(request.getUsers());
+    }
+
+    @Operation(summary = "Получить пользователя по ID",
+            description = "Ответ содержит ETag и Last-Modified. При совпадении If-None-Match возвращается 304 без тела.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Успешно"),
+            @ApiResponse(responseCode = "304", description = "Пользователь не изменился"),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден")
     })
     @GetMapping("/{id}")
-    public EntityModel<UserResponse> getById(@PathVariable Long id) {
-        return assembler.toModel(userService.getById(id));
+    public ResponseEntity<EntityModel<UserResponse>> getById(@PathVariable Long id, WebRequest webRequest) {
+        UserResponse user = userService.getById(id);
+        String eTag = UserETags.of(user, UserETags.Representation.HAL);
+        if (webRequest != null && webRequest.checkNotModified(eTag, UserETags.lastModified(user))) {
+            return null;
+        }
+        return withValidators(user);
+    }
+
+    @Operation(summary = "Получить пользователя по ID без HAL-ссылок",
+            description = "Для внутренних вызовов: " + UserMediaTypes.INTERNAL_JSON_VALUE + ".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Успешно"),
+            @ApiResponse(responseCode = "304", description = "Пользователь не изменился"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @GetMapping(value = "/{id}", produces = UserMediaTypes.INTERNAL_JSON_VALUE)
+    public ResponseEntity<UserResponse> getByIdInternal(@PathVariable Long id, WebRequest webRequest) {
+        return internal(id, webRequest, UserETags.Representation.INTERNAL_JSON);
+    }
+
+    @Operation(summary = "Получить пользователя по ID в CBOR",
+            description = "Для внутренних вызовов: та же структура, что и " + UserMediaTypes.INTERNAL_JSON_VALUE + ".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Успешно"),
+            @ApiResponse(responseCode = "304", description = "Пользователь не изменился"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @GetMapping(value = "/{id}", produces = UserMediaTypes.CBOR_VALUE)
+    public ResponseEntity<UserResponse> getByIdCbor(@PathVariable Long id, WebRequest webRequest) {
+        return internal(id, webRequest, UserETags.Representation.CBOR);
     }
 
     @Operation(summary = "Получить пользователя по email")
@@ -63,42 +137,235 @@ public class UserController {
         return assembler.toModel(userService.getByEmail(email));
     }
 
-    @Operation(summary = "Получить всех пользователей")
-    @ApiResponse(responseCode = "200", description = "Список пользователей получен")
+    @Operation(summary = "Проверить, занят ли email",
+            description = "Без тела ответа. Свободный email, как правило, определяется без запроса к БД.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Email занят"),
+            @ApiResponse(responseCode = "404", description = "Email свободен")
+    })
+    @RequestMapping(value = "/email", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> checkEmail(@RequestParam String email) {
+        return userService.emailExists(email)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Получить пользователя по email без HAL-ссылок",
+            description = "Для внутренних вызовов: " + UserMediaTypes.INTERNAL_JSON_VALUE + ".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Успешно"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @GetMapping(value = "/email", produces = {UserMediaTypes.INTERNAL_JSON_VALUE, UserMediaTypes.CBOR_VALUE})
+    public UserResponse getByEmailInternal(@RequestParam String email) {
+        return userService.getByEmail(email);
+    }
+
+    @Operation(summary = "Получить страницу пользователей",
+            description = "Keyset-пагинация по id. Ссылка next содержит курсор следующей страницы.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница пользователей получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор")
+    })
     @GetMapping
-    public CollectionModel<EntityModel<UserResponse>> getAll() {
-        List<UserResponse> users = userService.getAll();
-        return assembler.toCollectionModel(users);
+    public CollectionModel<EntityModel<UserResponse>> getAll(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer size) {
+        UserPage page = userService.getPage(cursor, size);
+        CollectionModel<EntityModel<UserResponse>> model = assembler.toCollectionModel(page.getContent())
+                .add(linkTo(methodOn(UserController.class).getAll(cursor, size)).withSelfRel());
+        if (page.getNextCursor() != null) {
+            model.add(linkTo(methodOn(UserController.class).getAll(page.getNextCursor(), size)).withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    @Operation(summary = "Получить страницу пользователей без HAL-ссылок",
+            description = "Для внутренних вызовов: " + UserMediaTypes.INTERNAL_JSON_VALUE + " или CBOR. "
+                    + "Курсор следующей страницы — в поле nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница пользователей получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор")
+    })
+    @GetMapping(produces = {UserMediaTypes.INTERNAL_JSON_VALUE, UserMediaTypes.CBOR_VALUE})
+    public UserPage getAllInternal(@RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size) {
+        return userService.getPage(cursor, size);
+    }
+
+    @Operation(summary = "Получить пользователей по списку id и/или email",
+            description = "До " + UserLookupRequest.MAX_KEYS + " ключей за запрос. "
+                    + "Ненайденные ключи возвращаются в missingIds и missingEmails.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Пользователи получены"),
+            @ApiResponse(responseCode = "400", description = "Пустой запрос или слишком много ключей")
+    })
+    @ReadOnlyRequest
+    @PostMapping("/lookup")
+    public UserLookupResponse lookup(@Valid @RequestBody UserLookupRequest request) {
+        return userService.lookup(request);
+    }
+
+    @Operation(summary = "Найти пользователей",
+            description = "Фильтры по началу имени и email (без учета регистра), диапазонам возраста и даты "
+                    + "регистрации. Keyset-пагинация в выбранном порядке; ссылка next содержит курсор.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница найденных пользователей"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры или курсор")
+    })
+    @GetMapping("/search")
+    public CollectionModel<EntityModel<UserResponse>> search(@ParameterObject @Valid UserSearchRequest request) {
+        UserPage page = userService.search(request);
+        CollectionModel<EntityModel<UserResponse>> model = assembler.toCollectionModel(page.getContent())
+                .add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (page.getNextCursor() != null) {
+            model.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString()).withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    @Operation(summary = "Найти пользователей без HAL-ссылок",
+            description = "Для внутренних вызовов: " + UserMediaTypes.INTERNAL_JSON_VALUE + " или CBOR. "
+                    + "Курсор следующей страницы — в поле nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница найденных пользователей"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры или курсор")
+    })
+    @GetMapping(value = "/search", produces = {UserMediaTypes.INTERNAL_JSON_VALUE, UserMediaTypes.CBOR_VALUE})
+    public UserPage searchInternal(@ParameterObject @Valid UserSearchRequest request) {
+        return userService.search(request);
+    }
+
+    @Operation(summary = "Выгрузить всех пользователей потоком (NDJSON)")
+    @ApiResponse(responseCode = "200", description = "Пользователи выгружаются построчно")
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить всю таблицу пользователей в файл (gzip)",
+            description = "NDJSON (по умолчанию) или CSV с заголовком " + UserCsv.HEADER
+                    + ". Строки читаются курсором в порядке id, память не зависит от размера таблицы.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Файл users.ndjson.gz или users.csv.gz"),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        UserTransferService.Format exportFormat = UserTransferService.Format.of(format);
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.extension() + ".gz")
+                        .build()
+                        .toString())
+                .body(out -> userTransferService.export(exportFormat, out));
+    }
+
+    @Operation(summary = "Загрузить пользователей из NDJSON",
+            description = "Тело — NDJSON, можно в gzip. Каждая строка проверяется как запрос на создание; "
+                    + "ошибочные строки и занятые email не прерывают загрузку, а возвращаются в errors.")
+    @ApiResponse(responseCode = "200", description = "Файл обработан")
+    @BulkRequest
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public UserImportResponse importNdjson(InputStream body) throws IOException {
+        return userTransferService.importNdjson(body);
+    }
+
+    @Operation(summary = "Загрузить пользователей из CSV",
+            description = "Тело — CSV с заголовком (нужны столбцы name, email, age; остальные игнорируются), "
+                    + "можно в gzip. Ошибочные строки и занятые email возвращаются в errors.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Файл обработан"),
+            @ApiResponse(responseCode = "400", description = "Нет обязательных столбцов или незакрытая кавычка")
+    })
+    @BulkRequest
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public UserImportResponse importCsv(InputStream body) throws IOException {
+        return userTransferService.importCsv(body);
     }
 
-    @Operation(summary = "Полностью обновить пользователя")
+    @Operation(summary = "Полностью обновить пользователя",
+            description = "С заголовком If-Match изменение применяется, только если ETag совпадает с текущим.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Данные обновлены"),
-            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+            @ApiResponse(responseCode = "412", description = "Пользователь изменен другим запросом")
     })
     @PutMapping("/{id}")
-    public EntityModel<UserResponse> update(@PathVariable Long id,
-                               @Valid @RequestBody UserCreateRequest request) {
-        return assembler.toModel(userService.update(id, request));
+    public ResponseEntity<EntityModel<UserResponse>> update(@PathVariable Long id,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                            @Valid @RequestBody UserCreateRequest request) {
+        return withValidators(userService.update(id, request, UserETags.precondition(ifMatch)));
     }
 
-    @Operation(summary = "Частично обновить пользователя")
+    @Operation(summary = "Частично обновить пользователя",
+            description = "С заголовком If-Match изменение применяется, только если ETag совпадает с текущим.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Данные частично обновлены"),
-            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+            @ApiResponse(responseCode = "412", description = "Пользователь изменен другим запросом")
     })
     @PatchMapping("/{id}")
-    public EntityModel<UserResponse> patch(@PathVariable Long id,
-                              @Valid @RequestBody UserPatchRequest request) {
-        return assembler.toModel(userService.patch(id, request));
+    public ResponseEntity<EntityModel<UserResponse>> patch(@PathVariable Long id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                           @Valid @RequestBody UserPatchRequest request) {
+        return withValidators(userService.patch(id, request, UserETags.precondition(ifMatch)));
     }
 
-    @Operation(summary = "Удалить пользователя")
-    @ApiResponse(responseCode = "204", description = "Пользователь удален")
+    @Operation(summary = "Удалить пользователя",
+            description = "Идемпотентно: повторное удаление тоже возвращает 204. "
+                    + "С заголовком If-Match пользователь удаляется, только если ETag совпадает с текущим.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Пользователь удален или уже отсутствовал"),
+            @ApiResponse(responseCode = "412", description = "Пользователь изменен другим запросом "
+                    + "или отсутствует при If-Match: *")
+    })
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        userService.delete(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.delete(id, UserETags.precondition(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(summary = "Удалить пользователей массово",
+            description = "Удаляет пользователей по списку id или всех, зарегистрированных до createdBefore. "
+                    + "Удаление идет порциями, каждая порция фиксируется отдельно.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Пользователи удалены"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации")
+    })
+    @BulkRequest
+    @DeleteMapping
+    public UserBulkDeleteResponse deleteBulk(@Valid @RequestBody UserBulkDeleteRequest request) {
+        long deleted = request.getCreatedBefore() != null
+                ? userService.deleteCreatedBefore(request.getCreatedBefore())
+                : userService.deleteByIds(request.getIds());
+        return new UserBulkDeleteResponse(deleted);
+    }
+
+    private ResponseEntity<UserResponse> internal(Long id, WebRequest webRequest, UserETags.Representation representation) {
+        UserResponse user = userService.getById(id);
+        String eTag = UserETags.of(user, representation);
+        if (webRequest != null && webRequest.checkNotModified(eTag, UserETags.lastModified(user))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(UserETags.lastModified(user))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(user);
+    }
+
+    private ResponseEntity<EntityModel<UserResponse>> withValidators(UserResponse user) {
+        return ResponseEntity.ok()
+                .eTag(UserETags.of(user, UserETags.Representation.HAL))
+                .lastModified(UserETags.lastModified(user))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(assembler.toModel(user));
+    }
 }
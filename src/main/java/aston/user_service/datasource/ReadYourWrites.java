@@ -0,0 +1,51 @@
+package user_service.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Окно read-your-writes: после записи клиент в течение {@code window}
+ * читает с primary, чтобы не получить устаревшие данные с отстающей реплики.
+ * Время последней записи хранится в памяти экземпляра, поэтому окно
+ * действует, пока запросы клиента приходят на тот же экземпляр.
+ */
+public class ReadYourWrites {
+    private static final int MAX_CLIENTS = 100_000;
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(Duration window) {
+        this.recentWriters = window.isZero() || window.isNegative()
+                ? null
+                : Caffeine.newBuilder()
+                        .maximumSize(MAX_CLIENTS)
+                        .expireAfterWrite(window)
+                        .build();
+    }
+
+    public void recordWrite(String clientId) {
+        if (recentWriters != null) {
+            recentWriters.put(clientId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Закрепляет текущий поток за primary, если клиент писал в пределах окна.
+     */
+    public void pinIfRecentWrite(String clientId) {
+        if (recentWriters != null && recentWriters.getIfPresent(clientId) != null) {
+            PINNED.set(Boolean.TRUE);
+        }
+    }
+
+    public void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+}
@@ -0,0 +1,51 @@
+package user_service.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.CacheSettings;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only транзакции, которые идут на реплику, только читают кэш второго уровня
+ * Hibernate ({@link CacheStoreMode#BYPASS}) и не кладут в него загруженные сущности.
+ * Строка с отстающей реплики иначе осталась бы в кэше до истечения срока записи,
+ * и ее получил бы даже клиент, закрепленный за primary после своей записи ({@link ReadYourWrites}).
+ * Кэш заполняют чтения с primary: транзакции на запись и закрепленные потоки.
+ * <p>
+ * Режим задается свойством сессии, а не {@code Session#setCacheMode}: {@code find}
+ * без явных подсказок берет режим из свойств сессии и перекрыл бы установленный.
+ */
+public class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || ReadYourWrites.isPinned()) {
+            return transactionData;
+        }
+        CacheStoreMode previousStoreMode = entityManager.getCacheStoreMode();
+        entityManager.setProperty(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaTransactionData(transactionData, entityManager, previousStoreMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData replica) {
+            if (replica.entityManager().isOpen()) {
+                replica.entityManager().setProperty(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE,
+                        replica.previousStoreMode());
+            }
+            super.cleanupTransaction(replica.delegate());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReplicaTransactionData(Object delegate, EntityManager entityManager,
+                                          CacheStoreMode previousStoreMode) {
+    }
+}
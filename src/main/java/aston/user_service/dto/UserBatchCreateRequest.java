@@ -0,0 +1,24 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Запрос на пакетное создание пользователей")
+public class UserBatchCreateRequest {
+    public static final int MAX_BATCH_SIZE = 5000;
+
+    @Schema(description = "Создаваемые пользователи", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "users must not be empty")
+    @Size(max = MAX_BATCH_SIZE, message = "users must contain at most " + MAX_BATCH_SIZE + " items")
+    private List<@Valid UserCreateRequest> users;
+}
@@ -0,0 +1,26 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Schema(description = "Результат пакетного создания пользователей")
+public class UserBatchCreateResponse {
+    @Schema(description = "Созданные пользователи")
+    List<UserResponse> created;
+    @Schema(description = "Отклоненные элементы запроса")
+    List<ItemError> errors;
+
+    @Value
+    @Schema(description = "Ошибка по элементу пакета")
+    public static class ItemError {
+        @Schema(description = "Индекс элемента в запросе", example = "3")
+        int index;
+        @Schema(description = "Электронная почта", example = "ivan@example.com")
+        String email;
+        @Schema(description = "Причина отказа", example = "User with email already exists: ivan@example.com")
+        String message;
+    }
+}
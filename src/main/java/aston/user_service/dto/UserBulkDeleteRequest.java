@@ -0,0 +1,36 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Запрос на массовое удаление пользователей: список id или фильтр по дате регистрации")
+public class UserBulkDeleteRequest {
+    public static final int MAX_IDS = 100_000;
+
+    @Schema(description = "Идентификаторы удаляемых пользователей", example = "[1, 2, 3]",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Size(max = MAX_IDS, message = "ids must contain at most " + MAX_IDS + " items")
+    private List<@NotNull Long> ids;
+
+    @Schema(description = "Удалить всех пользователей, зарегистрированных раньше этого момента",
+            example = "2020-01-01T00:00:00", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    private LocalDateTime createdBefore;
+
+    @Schema(hidden = true)
+    @AssertTrue(message = "exactly one of ids or createdBefore must be set")
+    public boolean isSingleCriterion() {
+        boolean byIds = ids != null && !ids.isEmpty();
+        return byIds != (createdBefore != null);
+    }
+}
@@ -0,0 +1,11 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+
+@Value
+@Schema(description = "Результат массового удаления пользователей")
+public class UserBulkDeleteResponse {
+    @Schema(description = "Количество удаленных пользователей", example = "1500")
+    long deleted;
+}
@@ -0,0 +1,28 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Schema(description = "Результат загрузки пользователей из файла")
+public class UserImportResponse {
+    @Schema(description = "Создано пользователей", example = "999998")
+    long imported;
+    @Schema(description = "Отклонено строк", example = "2")
+    long rejected;
+    @Schema(description = "Ошибки по строкам файла (не более первых 1000)")
+    List<LineError> errors;
+
+    @Value
+    @Schema(description = "Ошибка по строке файла")
+    public static class LineError {
+        @Schema(description = "Номер строки файла, с 1", example = "42")
+        long line;
+        @Schema(description = "Электронная почта, если ее удалось прочитать", example = "ivan@example.com")
+        String email;
+        @Schema(description = "Причина отказа", example = "age must be >= 0")
+        String message;
+    }
+}
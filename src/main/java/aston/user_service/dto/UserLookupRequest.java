@@ -0,0 +1,37 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Запрос на получение пользователей по списку id и/или email")
+public class UserLookupRequest {
+    public static final int MAX_KEYS = 5000;
+
+    @Schema(description = "Идентификаторы пользователей", example = "[1, 2, 3]",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Size(max = MAX_KEYS, message = "ids must contain at most " + MAX_KEYS + " items")
+    private List<@NotNull Long> ids;
+
+    @Schema(description = "Электронные почты пользователей (без учета регистра)", example = "[\"ivan@example.com\"]",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Size(max = MAX_KEYS, message = "emails must contain at most " + MAX_KEYS + " items")
+    private List<@NotBlank String> emails;
+
+    @Schema(hidden = true)
+    @AssertTrue(message = "ids or emails must be set, " + MAX_KEYS + " keys at most in total")
+    public boolean isKeyCountValid() {
+        int total = (ids == null ? 0 : ids.size()) + (emails == null ? 0 : emails.size());
+        return total > 0 && total <= MAX_KEYS;
+    }
+}
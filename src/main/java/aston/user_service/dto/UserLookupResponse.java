@@ -0,0 +1,17 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Schema(description = "Результат получения пользователей по списку ключей")
+public class UserLookupResponse {
+    @Schema(description = "Найденные пользователи, в порядке запроса, без повторов")
+    List<UserResponse> found;
+    @Schema(description = "Идентификаторы, для которых пользователь не найден")
+    List<Long> missingIds;
+    @Schema(description = "Электронные почты (нормализованные), для которых пользователь не найден")
+    List<String> missingEmails;
+}
@@ -0,0 +1,12 @@
+package user_service.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class UserPage {
+    List<UserResponse> content;
+    /** Непрозрачный курсор следующей страницы, {@code null} если страница последняя. */
+    String nextCursor;
+}
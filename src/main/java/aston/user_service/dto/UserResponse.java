@@ -18,4 +18,8 @@ public class UserResponse {
     Integer age;
     @Schema(description = "Дата создания")
     LocalDateTime createdAt;
+    @Schema(description = "Дата последнего изменения")
+    LocalDateTime updatedAt;
+    @Schema(description = "Версия записи, она же ETag ресурса", example = "3")
+    Long version;
 }
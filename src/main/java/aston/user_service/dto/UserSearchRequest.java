@@ -0,0 +1,52 @@
+package user_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Параметры поиска пользователей")
+public class UserSearchRequest {
+    @Schema(description = "Начало имени, без учета регистра", example = "Iv")
+    private String name;
+
+    @Schema(description = "Начало электронной почты, без учета регистра", example = "ivan@")
+    private String email;
+
+    @Schema(description = "Минимальный возраст, включительно", example = "18")
+    @Min(value = 0, message = "minAge must be >= 0")
+    @Max(value = 150, message = "minAge must be <= 150")
+    private Integer minAge;
+
+    @Schema(description = "Максимальный возраст, включительно", example = "65")
+    @Min(value = 0, message = "maxAge must be >= 0")
+    @Max(value = 150, message = "maxAge must be <= 150")
+    private Integer maxAge;
+
+    @Schema(description = "Зарегистрирован не раньше, включительно", example = "2024-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @Schema(description = "Зарегистрирован раньше, не включительно", example = "2025-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    @Schema(description = "Сортировка: поле и направление", example = "createdAt,desc", defaultValue = "id,asc")
+    @Pattern(regexp = "(id|createdAt|age)(,(asc|desc))?", message = "sort must be one of id, createdAt, age with optional ,asc or ,desc")
+    private String sort;
+
+    @Schema(description = "Курсор следующей страницы из ссылки next")
+    private String cursor;
+
+    @Schema(description = "Размер страницы", example = "50")
+    private Integer size;
+}
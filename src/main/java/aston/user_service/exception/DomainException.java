@@ -0,0 +1,13 @@
+package user_service.exception;
+
+/**
+ * Ожидаемый исход запроса (404, 400, 412, 429, 503), а не сбой: обрабатывается
+ * {@link GlobalExceptionHandler} и никогда не логируется со стеком.
+ * Поэтому стек не заполняется и suppressed не собираются — создание такого
+ * исключения стоит как обычный объект, даже если клиент перебирает случайные id.
+ */
+public abstract class DomainException extends RuntimeException {
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
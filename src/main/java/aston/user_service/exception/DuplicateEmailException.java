@@ -0,0 +1,7 @@
+package user_service.exception;
+
+public class DuplicateEmailException extends BadRequestException {
+    public DuplicateEmailException(String message) {
+        super(message);
+    }
+}
@@ -1,20 +1,47 @@
 package user_service.exception;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Тело ошибки — {@code {"error", "message"}} или, при {@code app.errors.problem-details=true},
+ * RFC 7807 {@code application/problem+json}. В режиме problem+json частые ответы
+ * не сериализуются Jackson: у 429 и 503 тело постоянное и собрано заранее, у 404
+ * и занятого email заранее собраны байты до и после {@code detail}, а в середину
+ * пишется сообщение исключения с ключом (id или email), как и в обычном теле ошибки.
+ */
 @RestControllerAdvice(basePackages = "user_service.controller")
 public class GlobalExceptionHandler {
+    private static final byte[] DETAIL_END = "\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOT_FOUND_PROBLEM_START = problemStart(HttpStatus.NOT_FOUND);
+    private static final byte[] BAD_REQUEST_PROBLEM_START = problemStart(HttpStatus.BAD_REQUEST);
+    private static final byte[] TOO_MANY_REQUESTS_PROBLEM = problem(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+    private static final byte[] SERVICE_UNAVAILABLE_PROBLEM = problem(HttpStatus.SERVICE_UNAVAILABLE, "Service is overloaded");
+
+    private final boolean problemDetails;
+
+    public GlobalExceptionHandler(@Value("${app.errors.problem-details:false}") boolean problemDetails) {
+        this.problemDetails = problemDetails;
+    }
 
     @ExceptionHandler(NotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleNotFound(NotFoundException e) {
+    public ResponseEntity<?> handleNotFound(NotFoundException e) {
+        if (problemDetails) {
+            return problemResponse(HttpStatus.NOT_FOUND, problem(NOT_FOUND_PROBLEM_START, e.getMessage()));
+        }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                 Map.of(
                         "error", "NOT_FOUND",
@@ -23,8 +50,19 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<?> handleDuplicateEmail(DuplicateEmailException e) {
+        if (problemDetails) {
+            return problemResponse(HttpStatus.BAD_REQUEST, problem(BAD_REQUEST_PROBLEM_START, e.getMessage()));
+        }
+        return handleBadRequest(e);
+    }
+
     @ExceptionHandler(BadRequestException.class)
-    public ResponseEntity<Map<String, Object>> handleBadRequest(BadRequestException e) {
+    public ResponseEntity<?> handleBadRequest(BadRequestException e) {
+        if (problemDetails) {
+            return ResponseEntity.of(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage())).build();
+        }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                 Map.of(
                         "error", "BAD_REQUEST",
@@ -33,8 +71,47 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<?> handlePreconditionFailed(PreconditionFailedException e) {
+        if (problemDetails) {
+            return ResponseEntity.of(ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED, e.getMessage())).build();
+        }
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(
+                Map.of(
+                        "error", "PRECONDITION_FAILED",
+                        "message", e.getMessage()
+                )
+        );
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handleTooManyRequests(TooManyRequestsException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()));
+        if (problemDetails) {
+            return response.contentType(MediaType.APPLICATION_PROBLEM_JSON).body(TOO_MANY_REQUESTS_PROBLEM);
+        }
+        return response.body(Map.of(
+                "error", "TOO_MANY_REQUESTS",
+                "message", e.getMessage()
+        ));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<?> handleServiceOverloaded(ServiceOverloadedException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()));
+        if (problemDetails) {
+            return response.contentType(MediaType.APPLICATION_PROBLEM_JSON).body(SERVICE_UNAVAILABLE_PROBLEM);
+        }
+        return response.body(Map.of(
+                "error", "SERVICE_UNAVAILABLE",
+                "message", e.getMessage()
+        ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException e) {
+    public ResponseEntity<?> handleValidation(MethodArgumentNotValidException e) {
 
         List<String> messages = e.getBindingResult()
                 .getAllErrors()
@@ -42,6 +119,12 @@ public class GlobalExceptionHandler {
                 .map(err -> err.getDefaultMessage() != null ? err.getDefaultMessage() : "Validation error")
                 .toList();
 
+        if (problemDetails) {
+            ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Validation failed");
+            problem.setProperty("messages", messages);
+            return ResponseEntity.of(problem).build();
+        }
+
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("error", "BAD_REQUEST");
         body.put("messages", messages);
@@ -49,8 +132,67 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(body);
     }
 
+    /** Retry-After в целых секундах, не меньше 1. */
+    private static String retryAfterSeconds(Duration retryAfter) {
+        return Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
+    /**
+     * Готовое тело отдается как byte[]: так его не меняет и не сериализует заново
+     * Spring (для объекта ProblemDetail он дописал бы instance в общий экземпляр).
+     */
+    private static ResponseEntity<byte[]> problemResponse(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_PROBLEM_JSON).body(body);
+    }
+
+    private static byte[] problem(HttpStatus status, String detail) {
+        return problem(problemStart(status), detail);
+    }
+
+    /** Начало тела до значения {@code detail} включительно с открывающей кавычкой. */
+    private static byte[] problemStart(HttpStatus status) {
+        return ("{\"type\":\"about:blank\",\"title\":\"" + status.getReasonPhrase()
+                + "\",\"status\":" + status.value()
+                + ",\"detail\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Тело с {@code detail} из сообщения исключения, экранированным для JSON. */
+    private static byte[] problem(byte[] start, String detail) {
+        byte[] escaped = jsonEscape(detail).getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[start.length + escaped.length + DETAIL_END.length];
+        System.arraycopy(start, 0, body, 0, start.length);
+        System.arraycopy(escaped, 0, body, start.length, escaped.length);
+        System.arraycopy(DETAIL_END, 0, body, start.length + escaped.length, DETAIL_END.length);
+        return body;
+    }
+
+    private static String jsonEscape(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                if (escaped != null) {
+                    escaped.append(c);
+                }
+                continue;
+            }
+            if (escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else {
+                escaped.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleOther(Exception e) {
+    public ResponseEntity<?> handleOther(Exception e) {
+        if (problemDetails) {
+            return ResponseEntity.of(ProblemDetail.forStatus(HttpStatus.INTERNAL_SERVER_ERROR)).build();
+        }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                 Map.of(
                         "error", "INTERNAL_ERROR",
@@ -1,7 +1,31 @@
 package user_service.exception;
 
-public class NotFoundException extends RuntimeException {
+public class NotFoundException extends DomainException {
+    private final String key;
+    private final Object value;
+
     public NotFoundException(String message) {
         super(message);
+        this.key = null;
+        this.value = null;
+    }
+
+    private NotFoundException(String key, Object value) {
+        super(null);
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Пользователь не найден по {@code key} (id, email). Сообщение собирается
+     * только при обращении к {@link #getMessage()}.
+     */
+    public static NotFoundException user(String key, Object value) {
+        return new NotFoundException(key, value);
+    }
+
+    @Override
+    public String getMessage() {
+        return key == null ? super.getMessage() : "User not found with " + key + ": " + value;
     }
 }
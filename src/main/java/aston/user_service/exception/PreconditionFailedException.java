@@ -0,0 +1,7 @@
+package user_service.exception;
+
+public class PreconditionFailedException extends DomainException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
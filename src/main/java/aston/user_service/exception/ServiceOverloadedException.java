@@ -0,0 +1,18 @@
+package user_service.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Экземпляр перегружен: запрос отклонен без выполнения, повторить можно через {@code retryAfter}.
+ */
+@Getter
+public class ServiceOverloadedException extends DomainException {
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,18 @@
+package user_service.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Превышен лимит частоты запросов; повторить можно через {@code retryAfter}.
+ */
+@Getter
+public class TooManyRequestsException extends DomainException {
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
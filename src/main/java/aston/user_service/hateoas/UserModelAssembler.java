@@ -1,30 +1,121 @@
 package user_service.hateoas;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.util.UriUtils;
 import user_service.controller.UserController;
 import user_service.dto.UserResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ссылки пользователя строятся одним из двух способов:
+ * <ul>
+ *     <li>через {@code methodOn} на каждую ссылку каждого пользователя;</li>
+ *     <li>по шаблонам ({@code app.hateoas.precomputed-links=true}, по умолчанию): базовый URI
+ *     и ссылка all_users вычисляются один раз на запрос, для пользователя подставляются только id и email.</li>
+ * </ul>
+ * HAL-ответ в обоих случаях одинаков; affordances (они нужны только для HAL-FORMS)
+ * по шаблонам не строятся.
+ */
 @Component
 public class UserModelAssembler implements RepresentationModelAssembler<UserResponse, EntityModel<UserResponse>> {
+    private static final String TEMPLATES_ATTRIBUTE = UserModelAssembler.class.getName() + ".TEMPLATES";
+
+    private final boolean precomputedLinks;
+
+    public UserModelAssembler() {
+        this(true);
+    }
+
+    @Autowired
+    public UserModelAssembler(@Value("${app.hateoas.precomputed-links:true}") boolean precomputedLinks) {
+        this.precomputedLinks = precomputedLinks;
+    }
 
     @Override
     public EntityModel<UserResponse> toModel(UserResponse userResponse) {
+        if (precomputedLinks) {
+            return toModel(userResponse, templates());
+        }
 
         return EntityModel.of(userResponse,
-                linkTo(methodOn(UserController.class).getById(userResponse.getId())).withSelfRel(),
+                linkTo(methodOn(UserController.class).getById(userResponse.getId(), null)).withSelfRel(),
 
-                linkTo(methodOn(UserController.class).getAll()).withRel("all_users"),
+                linkTo(methodOn(UserController.class).getAll(null, null)).withRel("all_users"),
 
                 linkTo(methodOn(UserController.class).getByEmail(userResponse.getEmail())).withRel("find_by_email"),
 
-                linkTo(methodOn(UserController.class).update(userResponse.getId(), null)).withRel("update"),
+                linkTo(methodOn(UserController.class).update(userResponse.getId(), null, null)).withRel("update"),
+
+                linkTo(methodOn(UserController.class).patch(userResponse.getId(), null, null)).withRel("patch"),
+
+                linkTo(methodOn(UserController.class).delete(userResponse.getId(), null)).withRel("delete")
+        );
+    }
+
+    @Override
+    public CollectionModel<EntityModel<UserResponse>> toCollectionModel(Iterable<? extends UserResponse> entities) {
+        if (!precomputedLinks) {
+            return RepresentationModelAssembler.super.toCollectionModel(entities);
+        }
+
+        LinkTemplates templates = templates();
+        List<EntityModel<UserResponse>> models = new ArrayList<>();
+        for (UserResponse entity : entities) {
+            models.add(toModel(entity, templates));
+        }
+        return CollectionModel.of(models);
+    }
 
-                linkTo(methodOn(UserController.class).patch(userResponse.getId(), null)).withRel("patch"),
+    private EntityModel<UserResponse> toModel(UserResponse userResponse, LinkTemplates templates) {
+        String userUri = templates.usersUri() + "/" + userResponse.getId();
+        String emailUri = templates.usersUri() + "/email?email="
+                + UriUtils.encode(userResponse.getEmail(), StandardCharsets.UTF_8);
 
-                linkTo(methodOn(UserController.class).delete(userResponse.getId())).withRel("delete")
+        return EntityModel.of(userResponse,
+                Link.of(userUri).withSelfRel(),
+                templates.allUsers(),
+                Link.of(emailUri, "find_by_email"),
+                Link.of(userUri, "update"),
+                Link.of(userUri, "patch"),
+                Link.of(userUri, "delete")
         );
     }
+
+    /**
+     * Шаблоны кэшируются в атрибутах текущего запроса: базовый URI зависит
+     * от Host и X-Forwarded-* заголовков конкретного запроса.
+     */
+    private LinkTemplates templates() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return LinkTemplates.create();
+        }
+        LinkTemplates templates = (LinkTemplates) attributes.getAttribute(TEMPLATES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (templates == null) {
+            templates = LinkTemplates.create();
+            attributes.setAttribute(TEMPLATES_ATTRIBUTE, templates, RequestAttributes.SCOPE_REQUEST);
+        }
+        return templates;
+    }
+
+    private record LinkTemplates(String usersUri, Link allUsers) {
+        static LinkTemplates create() {
+            return new LinkTemplates(
+                    linkTo(UserController.class).toUri().toString(),
+                    linkTo(methodOn(UserController.class).getAll(null, null)).withRel("all_users"));
+        }
+    }
 }
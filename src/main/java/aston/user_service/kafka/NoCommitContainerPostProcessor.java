@@ -0,0 +1,25 @@
+package user_service.kafka;
+
+import org.springframework.kafka.config.ContainerPostProcessor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Контейнер слушателя, который никогда не коммитит смещения: ни после записей
+ * (AckMode.MANUAL без подтверждений), ни при назначении партиций. Группа без
+ * смещений удаляется брокером, как только из нее выходит последний участник,
+ * поэтому группы прошлых запусков не копятся. Подключается через
+ * {@code @KafkaListener(containerPostProcessor = "noCommitContainerPostProcessor")}.
+ */
+@Component
+public class NoCommitContainerPostProcessor
+        implements ContainerPostProcessor<Object, Object, AbstractMessageListenerContainer<Object, Object>> {
+
+    @Override
+    public void postProcess(AbstractMessageListenerContainer<Object, Object> container) {
+        ContainerProperties properties = container.getContainerProperties();
+        properties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        properties.setAssignmentCommitOption(ContainerProperties.AssignmentCommitOption.NEVER);
+    }
+}
@@ -0,0 +1,226 @@
+package user_service.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import user_service.dto.UserResponse;
+import user_service.mapper.UserMapper;
+import user_service.model.OutboxEvent;
+import user_service.model.User;
+import user_service.repository.OutboxEventRepository;
+import user_service.repository.UserJdbcRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая доставка событий из outbox в {@code app.kafka.topic} и снимков затронутых
+ * пользователей в compacted-топик ({@link UserSnapshotProducer}).
+ * Пачка выбирается в короткой транзакции и помечается как взятая в работу: ее
+ * next_attempt_at сдвигается на время аренды, и другие экземпляры не берут ни эти
+ * строки, ни более поздние события тех же ключей. Аренда покрывает и блокировку send()
+ * (max.block.ms), и доставку продюсером (delivery.timeout.ms); если она все же истекла
+ * до подтверждений, строки могли взять другие экземпляры, и результат не записывается.
+ * Подтверждения брокера ожидаются вне транзакции, без блокировок строк; затем вторая
+ * транзакция удаляет доставленные строки и откладывает остальные с экспоненциальной задержкой.
+ * Ожидание по умолчанию равно delivery.timeout.ms: к этому сроку продюсер завершает каждую
+ * запись успехом или ошибкой, и отложенное событие уже не дойдет первой попыткой. Меньший
+ * {@code app.outbox.send-timeout} откладывает и записи, которые еще могут дойти, — повтор
+ * даст дубликат (потребитель различает его по version). Если событие ключа
+ * не доставлено, более поздние события того же ключа из пачки тоже откладываются,
+ * чтобы последним потребитель получил самое новое событие.
+ * Событие считается доставленным, только если подтвержден и снимок его пользователя.
+ * Событие, которое не удается прочитать, переносится в user_outbox_dead_letter
+ * и не задерживает остальные.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final long RELAY_LOCK_ID = 0x5553_4552_4f42_5846L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final UserEventOutbox userEventOutbox;
+    private final UserEventProducer userEventProducer;
+    private final UserSnapshotProducer userSnapshotProducer;
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserMapper userMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       UserEventOutbox userEventOutbox,
+                       UserEventProducer userEventProducer,
+                       UserSnapshotProducer userSnapshotProducer,
+                       UserJdbcRepository userJdbcRepository,
+                       UserMapper userMapper,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${app.outbox.batch-size:500}") int batchSize,
+                       @Value("${app.outbox.send-timeout:#{null}}") Duration sendTimeout,
+                       @Value("${app.outbox.initial-backoff:1s}") Duration initialBackoff,
+                       @Value("${app.outbox.max-backoff:5m}") Duration maxBackoff,
+                       @Value("${spring.kafka.producer.properties.max.block.ms:60000}") long maxBlockMs,
+                       @Value("${spring.kafka.producer.properties.delivery.timeout.ms:120000}") long deliveryTimeoutMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.userEventOutbox = userEventOutbox;
+        this.userEventProducer = userEventProducer;
+        this.userSnapshotProducer = userSnapshotProducer;
+        this.userJdbcRepository = userJdbcRepository;
+        this.userMapper = userMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout != null ? sendTimeout : Duration.ofMillis(deliveryTimeoutMs);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = Duration.ofMillis(maxBlockMs + deliveryTimeoutMs);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:200ms}")
+    public void poll() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    /**
+     * @return количество событий, взятых из outbox
+     */
+    int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Claim claim = transactionTemplate.execute(status -> claim(now));
+        if (claim == null || claim.rows().isEmpty()) {
+            return claim == null ? 0 : claim.taken();
+        }
+        List<OutboxEvent> batch = claim.rows();
+        List<UserEvent> events = claim.events();
+
+        List<CompletableFuture<?>> results = new ArrayList<>(userEventProducer.sendAll(events, batch));
+        Map<Long, ? extends CompletableFuture<?>> snapshots = publishSnapshots(events);
+
+        List<OutboxEvent> delivered = new ArrayList<>(batch.size());
+        List<OutboxEvent> failed = new ArrayList<>();
+        Set<String> failedKeys = new HashSet<>();
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            CompletableFuture<?> snapshot = snapshots.get(events.get(i).id());
+            if (awaitAck(results.get(i), deadline)
+                    && (snapshot == null || awaitAck(snapshot, deadline))
+                    && !failedKeys.contains(event.getEventKey())) {
+                delivered.add(event);
+            } else {
+                failedKeys.add(event.getEventKey());
+                failed.add(event);
+            }
+        }
+
+        LocalDateTime completedAt = LocalDateTime.now();
+        if (completedAt.isAfter(claim.leaseUntil())) {
+            logger.warn("Outbox: аренда пачки из {} событий истекла до подтверждений, результат не записан",
+                    batch.size());
+            return claim.taken();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxEventRepository.deleteAllByIdInBatch(delivered.stream().map(OutboxEvent::getId).toList());
+            for (OutboxEvent event : failed) {
+                reschedule(event, completedAt);
+            }
+        });
+
+        if (!failedKeys.isEmpty()) {
+            logger.warn("Outbox: не доставлено событий: {}, ключей: {}", failed.size(), failedKeys.size());
+        }
+        logger.debug("Outbox: доставлено событий: {}", delivered.size());
+        return claim.taken();
+    }
+
+    /**
+     * Выбирает пачку и продлевает ее next_attempt_at на время аренды: если экземпляр
+     * упадет, не закончив отправку, строки снова станут готовы после нее.
+     */
+    private Claim claim(LocalDateTime now) {
+        if (!outboxEventRepository.tryRelayLock(RELAY_LOCK_ID)) {
+            return new Claim(List.of(), List.of(), 0, now);
+        }
+        List<OutboxEvent> locked = outboxEventRepository.lockReadyBatch(now, batchSize);
+        List<OutboxEvent> rows = new ArrayList<>(locked.size());
+        List<UserEvent> events = new ArrayList<>(locked.size());
+        LocalDateTime leaseUntil = now.plus(lease);
+        for (OutboxEvent row : locked) {
+            UserEvent event;
+            try {
+                event = userEventOutbox.read(row);
+            } catch (RuntimeException e) {
+                logger.error("Outbox: событие {} с ключом {} не читается, перенесено в user_outbox_dead_letter",
+                        row.getId(), row.getEventKey(), e);
+                outboxEventRepository.moveToDeadLetter(row.getId(), String.valueOf(e.getMessage()), now);
+                continue;
+            }
+            row.setNextAttemptAt(leaseUntil);
+            rows.add(row);
+            events.add(event);
+        }
+        return new Claim(rows, events, locked.size(), leaseUntil);
+    }
+
+    private record Claim(List<OutboxEvent> rows, List<UserEvent> events, int taken, LocalDateTime leaseUntil) {
+    }
+
+    /**
+     * Снимки читаются в момент отправки, одним запросом на пачку, поэтому
+     * каждый снимок не старее событий пачки, а у удаленных пользователей — tombstone.
+     */
+    private Map<Long, ? extends CompletableFuture<?>> publishSnapshots(List<UserEvent> events) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (UserEvent event : events) {
+            if (event.id() != null) {
+                ids.add(event.id());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, UserResponse> current = new HashMap<>();
+        for (User user : userJdbcRepository.findByIds(ids)) {
+            current.put(user.getId(), userMapper.toResponse(user));
+        }
+        return userSnapshotProducer.sendAll(ids, current);
+    }
+
+    private boolean awaitAck(CompletableFuture<?> result, long deadline) {
+        try {
+            result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.debug("Outbox: ошибка отправки события", e);
+            return false;
+        }
+    }
+
+    private void reschedule(OutboxEvent event, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        long backoffMillis = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        event.setAttempts(attempts);
+        event.setNextAttemptAt(now.plus(Duration.ofMillis(Math.min(backoffMillis, maxBackoff.toMillis()))));
+        outboxEventRepository.reschedule(event.getId(), event.getAttempts(), event.getNextAttemptAt());
+    }
+}
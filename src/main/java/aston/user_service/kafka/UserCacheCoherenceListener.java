@@ -0,0 +1,103 @@
+package user_service.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+import user_service.cache.EmailExistenceFilter;
+import user_service.cache.UserCache;
+import user_service.cache.UserSecondLevelCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Поддерживает {@link UserCache} согласованным между экземплярами сервиса:
+ * слушает собственные события {@code app.kafka.topic} и применяет их к локальному кэшу.
+ * У каждого экземпляра своя consumer group, поэтому события получают все узлы,
+ * а не один из группы. Читается только новое: при старте кэш пуст, история не нужна,
+ * поэтому смещения не коммитятся ({@link NoCommitContainerPostProcessor}) и группа
+ * удаляется брокером после остановки экземпляра.
+ * <p>
+ * Те же события поддерживают {@link EmailExistenceFilter}, и после назначения партиций
+ * слушатель запускает его построение. После каждой записи фильтру сообщается ее seq_no
+ * outbox: пока фильтр не видел последний выданный seq_no, он не отвечает «нет».
+ * Удаления, свои и чужие, применяются только отсюда: DELETE приходит после CREATE
+ * того же ключа, и счетчики не уходят ниже фактических.
+ * <p>
+ * UPDATE и DELETE также вытесняют пользователя из кэша второго уровня Hibernate,
+ * он у каждого экземпляра свой.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.cache.coherence", name = "enabled", matchIfMissing = true)
+public class UserCacheCoherenceListener implements ConsumerSeekAware {
+    private static final Logger logger = LoggerFactory.getLogger(UserCacheCoherenceListener.class);
+
+    private final UserCache userCache;
+    private final EmailExistenceFilter emailFilter;
+    private final UserSecondLevelCache secondLevelCache;
+
+    @KafkaListener(
+            id = "userCacheCoherence",
+            topics = "${app.kafka.topic}",
+            groupId = "${app.cache.coherence.group-id:${spring.application.name}-cache-${random.uuid}}",
+            containerPostProcessor = "noCommitContainerPostProcessor",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "enable.auto.commit=false",
+                    "key.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "value.deserializer=user_service.kafka.UserEventDeserializer"
+            })
+    public void receive(UserEvent event,
+                        @Header(name = UserEventProducer.SEQ_NO_HEADER, required = false) byte[] seqNo) {
+        Long outboxSeqNo = seqNo == null ? null : Long.valueOf(new String(seqNo, StandardCharsets.UTF_8));
+        onEvent(event, outboxSeqNo);
+        if (outboxSeqNo != null) {
+            emailFilter.seen(outboxSeqNo);
+        }
+    }
+
+    public void onEvent(UserEvent event, Long outboxSeqNo) {
+        if (event == null) {
+            return;
+        }
+        if (event.id() == null) {
+            userCache.evictByEmail(event.email());
+        } else {
+            userCache.applyChange(event.id(), event.version(), event.operation() == UserEvent.Operation.DELETE);
+            if (event.operation() != UserEvent.Operation.CREATE) {
+                secondLevelCache.evict(event.id());
+            }
+        }
+        if (event.email() != null) {
+            switch (event.operation()) {
+                case CREATE -> emailFilter.added(event.email());
+                case UPDATE -> {
+                    if (event.changes().containsKey("email")) {
+                        emailFilter.added(event.email());
+                    }
+                }
+                case DELETE -> {
+                    if (outboxSeqNo != null) {
+                        emailFilter.removed(event.email(), outboxSeqNo);
+                    }
+                }
+            }
+        }
+        logger.debug("Кэш: применено событие {} пользователя {}", event.operation(), event.key());
+    }
+
+    /**
+     * Вызывается, когда позиции назначенных партиций уже определены.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        emailFilter.build();
+    }
+}
@@ -1,5 +1,40 @@
 package user_service.kafka;
 
-public record UserEvent(Operation operation, String email) {
-    public enum Operation {CREATE, DELETE}
+import user_service.model.User;
+
+import java.util.Map;
+
+/**
+ * Событие изменения пользователя. Ключ записи — email, как и до появления UPDATE:
+ * потребители app.kafka.topic полагаются на порядок и compaction по email, а смена
+ * ключа перераспределила бы события живого топика по партициям. UPDATE со сменой
+ * email уходит под новым email; порядок событий одного пользователя восстанавливается
+ * по {@code version}, а снимки по id публикуются в app.kafka.snapshot-topic.
+ * {@code changes} — новые значения измененных полей (name, email, age), заполняется
+ * только у UPDATE. У событий, записанных до появления id и version, эти поля пусты.
+ */
+public record UserEvent(Operation operation, Long id, String email, Long version, Map<String, Object> changes) {
+    /** Порядок значений — часть формата {@link UserEventSerializer}: новые добавляются только в конец. */
+    public enum Operation {CREATE, DELETE, UPDATE}
+
+    public UserEvent {
+        changes = changes == null ? Map.of() : changes;
+    }
+
+    public static UserEvent created(User user) {
+        return new UserEvent(Operation.CREATE, user.getId(), user.getEmail(), user.getVersion(), Map.of());
+    }
+
+    public static UserEvent updated(User user, Map<String, Object> changes) {
+        return new UserEvent(Operation.UPDATE, user.getId(), user.getEmail(), user.getVersion(), changes);
+    }
+
+    public static UserEvent deleted(Long id, String email, Long version) {
+        return new UserEvent(Operation.DELETE, id, email, version, Map.of());
+    }
+
+    /** Ключ записи в Kafka и в outbox. */
+    public String key() {
+        return email;
+    }
 }
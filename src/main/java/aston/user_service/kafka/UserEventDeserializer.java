@@ -0,0 +1,89 @@
+package user_service.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Читает записи {@link UserEventSerializer} обеих версий и, для совместимости, JSON.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+    private static final UserEvent.Operation[] OPERATIONS = UserEvent.Operation.values();
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length > 0 && data[0] == '{') {
+            return JSON.readValue(data, UserEvent.class);
+        }
+        if (data.length < 2) {
+            throw new SerializationException("Truncated UserEvent in topic " + topic);
+        }
+        return switch (data[0]) {
+            case UserEventSerializer.FORMAT_V1 -> new UserEvent(operation(data[1], topic), null,
+                    new String(data, 2, data.length - 2, StandardCharsets.UTF_8), null, Map.of());
+            case UserEventSerializer.FORMAT_V2 -> readV2(data, topic);
+            default -> throw new SerializationException("Unsupported UserEvent format in topic " + topic);
+        };
+    }
+
+    private static UserEvent readV2(byte[] data, String topic) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 2, data.length - 2))) {
+            UserEvent.Operation operation = operation(data[1], topic);
+            Long id = absentToNull(readVarLong(in));
+            Long version = absentToNull(readVarLong(in));
+            String email = in.readUTF();
+            int count = in.readUnsignedByte();
+            Map<String, Object> changes = count == 0 ? Map.of() : new LinkedHashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.put(in.readUTF(), readValue(in, topic));
+            }
+            return new UserEvent(operation, id, email, version, changes);
+        } catch (IOException e) {
+            throw new SerializationException("Truncated UserEvent in topic " + topic, e);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, String topic) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case UserEventSerializer.VALUE_NULL -> null;
+            case UserEventSerializer.VALUE_STRING -> in.readUTF();
+            case UserEventSerializer.VALUE_INT -> in.readInt();
+            default -> throw new SerializationException("Unknown change value type " + type + " in topic " + topic);
+        };
+    }
+
+    private static UserEvent.Operation operation(byte code, String topic) {
+        if (code < 0 || code >= OPERATIONS.length) {
+            throw new SerializationException("Unknown UserEvent operation " + code + " in topic " + topic);
+        }
+        return OPERATIONS[code];
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static Long absentToNull(long value) {
+        return value == 0 ? null : value - 1;
+    }
+}
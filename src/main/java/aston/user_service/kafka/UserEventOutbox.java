@@ -0,0 +1,46 @@
+package user_service.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.model.OutboxEvent;
+import user_service.repository.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Запись {@link UserEvent} в outbox. Вызывается только внутри транзакции,
+ * изменяющей users: событие фиксируется или откатывается вместе с данными.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserEventOutbox {
+    private final OutboxEventRepository outboxEventRepository;
+    private final JsonMapper jsonMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(UserEvent event) {
+        outboxEventRepository.save(toOutboxEvent(event, LocalDateTime.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<UserEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.saveAll(events.stream().map(e -> toOutboxEvent(e, now)).toList());
+    }
+
+    UserEvent read(OutboxEvent outboxEvent) {
+        return jsonMapper.readValue(outboxEvent.getPayload(), UserEvent.class);
+    }
+
+    private OutboxEvent toOutboxEvent(UserEvent event, LocalDateTime now) {
+        return OutboxEvent.builder()
+                .eventKey(event.key())
+                .payload(jsonMapper.writeValueAsString(event))
+                .nextAttemptAt(now)
+                .build();
+    }
+}
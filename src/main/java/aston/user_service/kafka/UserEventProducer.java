@@ -1,20 +1,68 @@
 package user_service.kafka;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import user_service.metrics.UserMetrics;
+import user_service.model.OutboxEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 @RequiredArgsConstructor
 public class UserEventProducer {
+    private static final Logger logger = LoggerFactory.getLogger(UserEventProducer.class);
+
+    /**
+     * seq_no строки outbox: по нему {@link user_service.cache.EmailExistenceFilter}
+     * отличает события, уже учтенные при чтении таблицы.
+     */
+    public static final String SEQ_NO_HEADER = "user-event-seq-no";
+
     private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final UserMetrics userMetrics;
 
     @Value("${app.kafka.topic}")
     private String topic;
 
-    public void send(UserEvent event) {
-        kafkaTemplate.send(topic, event.email(), event);
+    public CompletableFuture<SendResult<String, UserEvent>> send(UserEvent event, OutboxEvent source) {
+        ProducerRecord<String, UserEvent> record = new ProducerRecord<>(topic, event.key(), event);
+        if (source.getSeqNo() != null) {
+            record.headers().add(SEQ_NO_HEADER, source.getSeqNo().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Timer.Sample sample = userMetrics.start();
+        return kafkaTemplate.send(record)
+                .whenComplete((result, e) -> {
+                    userMetrics.recordKafkaSend(sample, topic, e);
+                    if (e != null) {
+                        logger.debug("Kafka: запись с ключом {} не подтверждена брокером", event.key(), e);
+                    }
+                });
+    }
+
+    /**
+     * Отправляет события пачкой: записи копятся в буфере продюсера
+     * и уходят брокеру одним flush, а не по одной.
+     *
+     * @param sources строки outbox, из которых прочитаны {@code events}, в том же порядке
+     */
+    public List<CompletableFuture<SendResult<String, UserEvent>>> sendAll(List<UserEvent> events,
+                                                                          List<OutboxEvent> sources) {
+        List<CompletableFuture<SendResult<String, UserEvent>>> results = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            results.add(send(events.get(i), sources.get(i)));
+        }
+        kafkaTemplate.flush();
+        return results;
     }
 
 }
@@ -0,0 +1,74 @@
+package user_service.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Компактная запись {@link UserEvent}: байт версии формата, байт операции,
+ * id и version (varint, 0 если нет, иначе значение + 1), email и измененные поля
+ * (имя, тип, значение); строки в modified UTF-8. Около 30 байт вместо ~90 у JSON,
+ * и без Jackson на горячем пути отправки.
+ * Первый байт никогда не равен '{', поэтому {@link UserEventDeserializer}
+ * отличает этот формат от JSON, записанного до перехода.
+ */
+public class UserEventSerializer implements Serializer<UserEvent> {
+    /** Операция и email, без id и изменений. Только читается. */
+    static final byte FORMAT_V1 = 1;
+    static final byte FORMAT_V2 = 2;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_INT = 2;
+
+    @Override
+    public byte[] serialize(String topic, UserEvent event) {
+        if (event == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + event.email().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_V2);
+            out.writeByte(event.operation().ordinal());
+            writeVarLong(out, event.id() == null ? 0 : event.id() + 1);
+            writeVarLong(out, event.version() == null ? 0 : event.version() + 1);
+            out.writeUTF(event.email());
+            out.writeByte(event.changes().size());
+            for (Map.Entry<String, Object> change : event.changes().entrySet()) {
+                out.writeUTF(change.getKey());
+                writeValue(out, change.getValue());
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize UserEvent for topic " + topic, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Беззнаковый varint: 7 бит на байт, старший бит — продолжение. */
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(VALUE_NULL);
+            case String s -> {
+                out.writeByte(VALUE_STRING);
+                out.writeUTF(s);
+            }
+            case Integer i -> {
+                out.writeByte(VALUE_INT);
+                out.writeInt(i);
+            }
+            default -> throw new SerializationException("Unsupported change value type " + value.getClass());
+        }
+    }
+}
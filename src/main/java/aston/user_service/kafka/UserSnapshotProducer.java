@@ -0,0 +1,72 @@
+package user_service.kafka;
+
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+import org.springframework.stereotype.Component;
+import user_service.dto.UserResponse;
+import user_service.metrics.UserMetrics;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Снимки пользователей в log-compacted топик {@code app.kafka.snapshot-topic}, ключ — id.
+ * После компакции в топике остается последнее состояние каждого пользователя,
+ * удаленные пользователи — tombstone (null). Потребитель, прочитавший топик с начала,
+ * получает полную копию данных и дальше обновляет ее без вызовов REST API.
+ * Значение — тот же JSON, что отдает GET без HAL-ссылок.
+ */
+@Component
+public class UserSnapshotProducer implements DisposableBean {
+    private final ProducerFactory<String, UserResponse> producerFactory;
+    private final KafkaTemplate<String, UserResponse> kafkaTemplate;
+    private final UserMetrics userMetrics;
+    private final String topic;
+
+    @SuppressWarnings("unchecked")
+    public UserSnapshotProducer(ProducerFactory<?, ?> eventProducerFactory,
+                                UserMetrics userMetrics,
+                                @Value("${app.kafka.snapshot-topic:users-state}") String topic) {
+        this.producerFactory = (ProducerFactory<String, UserResponse>) eventProducerFactory.copyWithConfigurationOverride(Map.of(
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JacksonJsonSerializer.class,
+                JacksonJsonSerializer.ADD_TYPE_INFO_HEADERS, false));
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        this.userMetrics = userMetrics;
+        this.topic = topic;
+    }
+
+    /**
+     * Отправляет снимок каждого id из {@code ids}: состояние из {@code current}
+     * или tombstone, если пользователя там нет.
+     */
+    public Map<Long, CompletableFuture<SendResult<String, UserResponse>>> sendAll(Collection<Long> ids,
+                                                                                 Map<Long, UserResponse> current) {
+        Map<Long, CompletableFuture<SendResult<String, UserResponse>>> results = new LinkedHashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            Timer.Sample sample = userMetrics.start();
+            results.put(id, kafkaTemplate.send(topic, id.toString(), current.get(id))
+                    .whenComplete((result, e) -> userMetrics.recordKafkaSend(sample, topic, e)));
+        }
+        kafkaTemplate.flush();
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        if (producerFactory instanceof DisposableBean disposable) {
+            try {
+                disposable.destroy();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
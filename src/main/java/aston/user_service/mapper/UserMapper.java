@@ -5,23 +5,34 @@ import user_service.dto.UserResponse;
 import user_service.model.User;
 import org.springframework.stereotype.Component;
 
+import java.util.Locale;
+
 @Component
 public class UserMapper {
     public User toEntity(UserCreateRequest request) {
         return User.builder()
                 .name(request.getName())
-                .email(request.getEmail())
+                .email(normalizeEmail(request.getEmail()))
                 .age(request.getAge())
                 .build();
     }
 
+    /**
+     * Приводит email к виду, в котором он хранится: без пробелов по краям и в нижнем регистре.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     public UserResponse toResponse(User user) {
         return new UserResponse(
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
                 user.getAge(),
-                user.getCreatedAt()
+                user.getCreatedAt(),
+                user.getUpdatedAt(),
+                user.getVersion()
         );
     }
 }
@@ -0,0 +1,37 @@
+package user_service.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Таймер {@value UserMetrics#DB_TIMER} на каждый публичный метод репозитория
+ * с тегами repository, operation и outcome (success или имя исключения).
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+    private final ObjectProvider<UserMetrics> userMetrics;
+
+    public RepositoryMetricsInterceptor(ObjectProvider<UserMetrics> userMetrics) {
+        this.userMetrics = userMetrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        UserMetrics metrics = userMetrics.getObject();
+        Timer.Sample sample = metrics.start();
+        String outcome = "success";
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            metrics.recordDbOperation(sample, invocation.getMethod().getDeclaringClass().getSimpleName(),
+                    invocation.getMethod().getName(), outcome);
+        }
+    }
+}
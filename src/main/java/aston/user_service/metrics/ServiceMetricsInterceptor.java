@@ -0,0 +1,46 @@
+package user_service.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import user_service.exception.DuplicateEmailException;
+import user_service.exception.NotFoundException;
+
+/**
+ * Таймер {@value UserMetrics#SERVICE_TIMER} на каждый публичный метод сервиса
+ * с тегами service, operation и outcome (success или имя исключения).
+ * Исходы "не найден" и "email занят" дополнительно считаются отдельными счетчиками.
+ */
+public class ServiceMetricsInterceptor implements MethodInterceptor {
+    private final ObjectProvider<UserMetrics> userMetrics;
+
+    public ServiceMetricsInterceptor(ObjectProvider<UserMetrics> userMetrics) {
+        this.userMetrics = userMetrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        UserMetrics metrics = userMetrics.getObject();
+        String service = invocation.getMethod().getDeclaringClass().getSimpleName();
+        String operation = invocation.getMethod().getName();
+        Timer.Sample sample = metrics.start();
+        String outcome = "success";
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            if (e instanceof NotFoundException) {
+                metrics.notFound(operation);
+            } else if (e instanceof DuplicateEmailException) {
+                metrics.duplicateEmail(operation);
+            }
+            throw e;
+        } finally {
+            metrics.recordOperation(sample, service, operation, outcome);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package user_service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Метрики сервиса пользователей. Перцентили и гистограммы таймеров
+ * включаются в application.yml (management.metrics.distribution).
+ * <p>
+ * Каждый метр строится и регистрируется один раз и дальше берется из карты
+ * по значениям тегов: builder и поиск в реестре на каждый вызов обходились
+ * дороже самого замера. Таймеры успешных операций и подтвержденных отправок
+ * регистрируются заранее ({@link #registerServiceOperations}, {@link #registerDbOperations},
+ * {@link #registerKafkaTopic}), чтобы серии были видны с нулевыми значениями до первого вызова.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserMetrics {
+    public static final String SERVICE_TIMER = "users.service";
+    public static final String DB_TIMER = "users.db";
+    public static final String KAFKA_SEND_TIMER = "users.kafka.send";
+    public static final String NOT_FOUND_COUNTER = "users.not_found";
+    public static final String DUPLICATE_EMAIL_COUNTER = "users.duplicate_email";
+    public static final String RATE_LIMITED_COUNTER = "users.rate_limited";
+
+    private static final String SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<OperationKey, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<OperationKey, Timer> dbTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<KafkaSendKey, Timer> kafkaSendTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> notFoundCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> duplicateEmailCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<RateLimitedKey, Counter> rateLimitedCounters = new ConcurrentHashMap<>();
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordOperation(Timer.Sample sample, String service, String operation, String outcome) {
+        sample.stop(operationTimer(new OperationKey(service, operation, outcome)));
+    }
+
+    /**
+     * Время запроса к БД из {@code repository} с тем же набором тегов, что у операций сервиса.
+     */
+    public void recordDbOperation(Timer.Sample sample, String repository, String operation, String outcome) {
+        sample.stop(dbTimer(new OperationKey(repository, operation, outcome)));
+    }
+
+    /**
+     * Время от вызова send до подтверждения (или ошибки) брокера;
+     * {@code error == null} означает подтвержденную запись.
+     */
+    public void recordKafkaSend(Timer.Sample sample, String topic, Throwable error) {
+        sample.stop(kafkaSendTimer(error == null
+                ? new KafkaSendKey(topic, "ack", "none")
+                : new KafkaSendKey(topic, "error", rootCause(error).getClass().getSimpleName())));
+    }
+
+    public void notFound(String operation) {
+        notFoundCounters.computeIfAbsent(operation, op -> Counter.builder(NOT_FOUND_COUNTER)
+                        .description("Запросы к несуществующим пользователям")
+                        .tag("operation", op)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void duplicateEmail(String operation) {
+        duplicateEmailCounters.computeIfAbsent(operation, op -> Counter.builder(DUPLICATE_EMAIL_COUNTER)
+                        .description("Отказы из-за занятого email")
+                        .tag("operation", op)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * @param reason client, endpoint или concurrency
+     */
+    public void rateLimited(String endpoint, String reason) {
+        rateLimitedCounters.computeIfAbsent(new RateLimitedKey(endpoint, reason), key -> Counter.builder(RATE_LIMITED_COUNTER)
+                        .description("Запросы, отклоненные лимитами до выполнения")
+                        .tag("endpoint", key.endpoint())
+                        .tag("reason", key.reason())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Регистрирует таймеры {@value #SERVICE_TIMER} успешного исхода операций {@code service}.
+     */
+    public void registerServiceOperations(String service, Collection<String> operations) {
+        operations.forEach(operation -> operationTimer(new OperationKey(service, operation, SUCCESS)));
+    }
+
+    /**
+     * Регистрирует таймеры {@value #DB_TIMER} успешного исхода операций {@code repository}.
+     */
+    public void registerDbOperations(String repository, Collection<String> operations) {
+        operations.forEach(operation -> dbTimer(new OperationKey(repository, operation, SUCCESS)));
+    }
+
+    public void registerKafkaTopic(String topic) {
+        kafkaSendTimer(new KafkaSendKey(topic, "ack", "none"));
+    }
+
+    private Timer operationTimer(OperationKey key) {
+        return operationTimers.computeIfAbsent(key, k -> Timer.builder(SERVICE_TIMER)
+                .description("Время выполнения операций сервисного слоя")
+                .tag("service", k.component())
+                .tag("operation", k.operation())
+                .tag("outcome", k.outcome())
+                .register(meterRegistry));
+    }
+
+    private Timer dbTimer(OperationKey key) {
+        return dbTimers.computeIfAbsent(key, k -> Timer.builder(DB_TIMER)
+                .description("Время выполнения запросов к БД")
+                .tag("repository", k.component())
+                .tag("operation", k.operation())
+                .tag("outcome", k.outcome())
+                .register(meterRegistry));
+    }
+
+    private Timer kafkaSendTimer(KafkaSendKey key) {
+        return kafkaSendTimers.computeIfAbsent(key, k -> Timer.builder(KAFKA_SEND_TIMER)
+                .description("Время до подтверждения записи брокером Kafka")
+                .tag("topic", k.topic())
+                .tag("outcome", k.outcome())
+                .tag("exception", k.exception())
+                .register(meterRegistry));
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private record OperationKey(String component, String operation, String outcome) {
+    }
+
+    private record KafkaSendKey(String topic, String outcome, String exception) {
+    }
+
+    private record RateLimitedKey(String endpoint, String reason) {
+    }
+}
@@ -0,0 +1,53 @@
+package user_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие, ожидающее отправки в Kafka. Пишется в той же транзакции,
+ * что и изменение users, и удаляется релеем после подтверждения брокера.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+
+@Entity
+@Table(name = "user_outbox", indexes = {
+        @Index(name = "user_outbox_key_seq_no_idx", columnList = "event_key, seq_no"),
+        @Index(name = "user_outbox_seq_no_idx", columnList = "seq_no")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+    @SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * Порядок доставки: присваивается базой при INSERT (V7__outbox_order_and_dead_letter.sql)
+     * и по одному ключу совпадает с порядком фиксации, в отличие от id.
+     */
+    @Column(name = "seq_no", insertable = false, updatable = false)
+    private Long seqNo;
+
+    @Column(name = "event_key", nullable = false)
+    private String eventKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,10 +2,22 @@ package user_service.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
+/**
+ * Кэшируется во втором уровне Hibernate (регион {@value #CACHE_REGION}, сам email -> id —
+ * {@value #NATURAL_ID_CACHE_REGION}); размеры и время жизни — в hibernate-caffeine.conf.
+ * Записи через {@link user_service.repository.UserJdbcRepository} идут мимо Hibernate,
+ * поэтому репозиторий сам вытесняет измененные строки из кэша. Read-only транзакции
+ * на реплике кэш только читают: см. {@link user_service.datasource.ReplicaAwareJpaDialect}.
+ */
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,16 +26,26 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name= "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 public class User {
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-email";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 500)
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false, unique = true)
+    // Уникальность без учета регистра — индекс users_email_lower_key (миграция V4).
+    // Natural id только для кэша email -> id: по самому столбцу индекса нет, поэтому
+    // из БД email ищется запросом по lower(email) (UserNaturalIdRepository)
+    @NaturalId(mutable = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
@@ -32,4 +54,13 @@ public class User {
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Увеличивается при каждом изменении, в том числе в UserJdbcRepository; основа ETag
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,109 @@
+package user_service.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Адаптивный лимит одновременных запросов (AIMD). Пока запросы укладываются
+ * в {@code latencyThreshold}, лимит растет на 1 за каждый запрос, пришедший при
+ * загрузке не меньше половины лимита. Медленный запрос или ошибка перегрузки
+ * умножают лимит на {@code backoffRatio}. Лишние запросы не ждут в очереди,
+ * а сразу получают отказ: задержка принятых остается ограниченной.
+ */
+public class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio, System::nanoTime);
+    }
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio,
+                       LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("expected 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return разрешение, которое нужно вернуть через {@link Permit}, или null, если лимит исчерпан
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1, nanoClock.getAsLong());
+            }
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(int inFlightAtStart, long latencyNanos, boolean overloaded) {
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        } else if (inFlightAtStart * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public final class Permit {
+        private final int inFlightAtStart;
+        private final long startedAt;
+        private boolean released;
+
+        private Permit(int inFlightAtStart, long startedAt) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startedAt = startedAt;
+        }
+
+        /**
+         * Возвращает разрешение и учитывает задержку запроса в лимите.
+         *
+         * @param overloaded запрос завершился ошибкой перегрузки (5xx)
+         */
+        public void complete(boolean overloaded) {
+            if (release()) {
+                onSample(inFlightAtStart, nanoClock.getAsLong() - startedAt, overloaded);
+            }
+        }
+
+        /**
+         * Возвращает разрешение без замера: для запросов, чья длительность
+         * не говорит о нагрузке (потоковая выгрузка, массовые операции).
+         */
+        public void releaseWithoutSample() {
+            release();
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+}
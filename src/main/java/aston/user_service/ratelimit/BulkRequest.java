@@ -0,0 +1,16 @@
+package user_service.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Массовая операция: время обработки растет с размером запроса и заведомо выше
+ * {@code latency-threshold}. Такой запрос занимает разрешение {@link AimdLimiter},
+ * но не участвует в замере задержек, иначе каждый вызов урезал бы общий лимит записей.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkRequest {
+}
@@ -0,0 +1,18 @@
+package user_service.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Короткий метод сервиса, все время занимающий соединение с БД: одновременно выполняется
+ * не больше {@code app.concurrency.service-limit} таких вызовов ({@link DbConcurrencyLimiter}).
+ * Потоковые выгрузки и массовые операции держат соединение долго и не помечаются,
+ * иначе несколько выгрузок заняли бы все разрешения. Не помечаются и чтения, отвечающие
+ * из кэша: они берут разрешение только вокруг запроса к БД.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DbConcurrencyLimit {
+}
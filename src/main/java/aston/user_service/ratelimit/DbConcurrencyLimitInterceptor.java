@@ -0,0 +1,23 @@
+package user_service.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Выполняет методы с {@link DbConcurrencyLimit} под разрешением {@link DbConcurrencyLimiter}.
+ */
+@RequiredArgsConstructor
+public class DbConcurrencyLimitInterceptor implements MethodInterceptor {
+    private final DbConcurrencyLimiter limiter;
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        limiter.acquire();
+        try {
+            return invocation.proceed();
+        } finally {
+            limiter.release();
+        }
+    }
+}
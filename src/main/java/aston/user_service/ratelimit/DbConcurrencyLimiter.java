@@ -0,0 +1,61 @@
+package user_service.ratelimit;
+
+import user_service.exception.ServiceOverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Не больше {@code app.concurrency.service-limit} одновременных операций с БД.
+ * Разрешение ждется не дольше {@code maxWait} в порядке очереди; не дождавшаяся операция
+ * отклоняется {@link ServiceOverloadedException} (503), а не ждет без срока.
+ * Лимит {@code <= 0} выключает ограничение.
+ * <p>
+ * Методы сервиса целиком ограничиваются аннотацией {@link DbConcurrencyLimit}. Методы,
+ * которые часто отвечают из памяти (кэш, фильтр email, ожидание чужой загрузки),
+ * берут разрешение через {@link #call} только на время запроса к БД.
+ */
+public class DbConcurrencyLimiter {
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public DbConcurrencyLimiter(int limit, Duration maxWait) {
+        this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            release();
+        }
+    }
+
+    void acquire() {
+        if (permits == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new ServiceOverloadedException("Too many concurrent database operations", RETRY_AFTER);
+        }
+    }
+
+    void release() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package user_service.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Лимиты запросов к API: {@code app.rate-limit.read.*} и {@code app.rate-limit.write.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("app.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    /** Сколько хранить бакет клиента без обращений. */
+    private Duration clientIdleTimeout = Duration.ofMinutes(5);
+    private Limits read = new Limits(200, 400, 5000, 10000, 40, 4, 400, Duration.ofMillis(200));
+    private Limits write = new Limits(50, 100, 1000, 2000, 20, 2, 100, Duration.ofMillis(500));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limits {
+        /** Запросов в секунду от одного клиента. */
+        private double clientRate;
+        private int clientBurst;
+        /** Запросов в секунду к одному эндпоинту от всех клиентов. */
+        private double endpointRate;
+        private int endpointBurst;
+        /** Начальный, минимальный и максимальный адаптивный лимит одновременных запросов. */
+        private int initialConcurrency;
+        private int minConcurrency;
+        private int maxConcurrency;
+        /** Задержка, выше которой адаптивный лимит уменьшается. */
+        private Duration latencyThreshold;
+    }
+
+    public Limits limits(RequestBudget budget) {
+        return budget == RequestBudget.READ ? read : write;
+    }
+}
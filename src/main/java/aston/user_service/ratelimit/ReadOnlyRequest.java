@@ -0,0 +1,15 @@
+package user_service.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Обработчик не-GET запроса, который только читает данные (например, POST с телом-фильтром):
+ * расходует бюджет {@link RequestBudget#READ}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyRequest {
+}
@@ -0,0 +1,19 @@
+package user_service.ratelimit;
+
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Класс запроса для лимитов: чтения и записи расходуют раздельные бюджеты,
+ * чтобы поток записей не отнимал пропускную способность у чтений и наоборот.
+ */
+public enum RequestBudget {
+    READ, WRITE;
+
+    public static RequestBudget of(String httpMethod, HandlerMethod handler) {
+        if ("GET".equals(httpMethod) || "HEAD".equals(httpMethod) || "OPTIONS".equals(httpMethod)
+                || handler.hasMethodAnnotation(ReadOnlyRequest.class)) {
+            return READ;
+        }
+        return WRITE;
+    }
+}
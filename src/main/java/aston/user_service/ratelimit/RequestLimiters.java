@@ -0,0 +1,71 @@
+package user_service.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Все лимиты запросов экземпляра: бакеты клиентов (вытесняются после простоя),
+ * бакеты эндпоинтов и адаптивный лимит конкурентности на каждый {@link RequestBudget}.
+ * Адаптивный лимит и число запросов в работе публикуются как
+ * {@code users.concurrency.limit} и {@code users.concurrency.in_flight}.
+ */
+public class RequestLimiters implements MeterBinder {
+    private static final int MAX_CLIENTS = 100_000;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final RateLimitProperties properties;
+    private final Cache<String, TokenBucket> clientBuckets;
+    private final Map<String, TokenBucket> endpointBuckets = new ConcurrentHashMap<>();
+    private final Map<RequestBudget, AimdLimiter> concurrency = new EnumMap<>(RequestBudget.class);
+
+    public RequestLimiters(RateLimitProperties properties) {
+        this.properties = properties;
+        this.clientBuckets = Caffeine.newBuilder()
+                .maximumSize(MAX_CLIENTS)
+                .expireAfterAccess(properties.getClientIdleTimeout())
+                .build();
+        for (RequestBudget budget : RequestBudget.values()) {
+            RateLimitProperties.Limits limits = properties.limits(budget);
+            concurrency.put(budget, new AimdLimiter(limits.getInitialConcurrency(), limits.getMinConcurrency(),
+                    limits.getMaxConcurrency(), limits.getLatencyThreshold(), BACKOFF_RATIO));
+        }
+    }
+
+    public TokenBucket client(String clientId, RequestBudget budget) {
+        RateLimitProperties.Limits limits = properties.limits(budget);
+        return clientBuckets.get(budget + ":" + clientId,
+                key -> new TokenBucket(limits.getClientRate(), limits.getClientBurst()));
+    }
+
+    public TokenBucket endpoint(String endpoint, RequestBudget budget) {
+        RateLimitProperties.Limits limits = properties.limits(budget);
+        return endpointBuckets.computeIfAbsent(endpoint,
+                key -> new TokenBucket(limits.getEndpointRate(), limits.getEndpointBurst()));
+    }
+
+    public AimdLimiter concurrency(RequestBudget budget) {
+        return concurrency.get(budget);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        concurrency.forEach((budget, limiter) -> {
+            String tag = budget.name().toLowerCase();
+            Gauge.builder("users.concurrency.limit", limiter, AimdLimiter::limit)
+                    .description("Адаптивный лимит одновременных запросов")
+                    .tag("budget", tag)
+                    .register(registry);
+            Gauge.builder("users.concurrency.in_flight", limiter, AimdLimiter::inFlight)
+                    .description("Запросы в обработке")
+                    .tag("budget", tag)
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package user_service.ratelimit;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket: {@code ratePerSecond} токенов в секунду, в запасе не больше {@code burst}.
+ * Пополнение ленивое, при каждом обращении; отдельного таймера нет.
+ */
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double ratePerSecond, double burst, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be positive and burst at least 1");
+        }
+        this.tokensPerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return 0, если токен взят, иначе сколько наносекунд ждать следующего токена
+     */
+    public synchronized long tryAcquire() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Возвращает токен, взятый {@link #tryAcquire}, когда запрос отклонен
+     * следующим лимитом и так и не был выполнен. Запас не превышает {@code burst}.
+     */
+    public synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+}
@@ -0,0 +1,54 @@
+package user_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import user_service.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Берет готовые к отправке события в порядке seq_no. Событие пропускается,
+     * пока более раннее событие с тем же ключом ждет повтора или отправляется
+     * другим экземпляром, иначе ключ получил бы события не по порядку.
+     */
+    @Query(value = """
+            SELECT o.* FROM user_outbox o
+            WHERE o.next_attempt_at <= :now
+              AND NOT EXISTS (SELECT 1 FROM user_outbox p
+                              WHERE p.event_key = o.event_key AND p.seq_no < o.seq_no AND p.next_attempt_at > :now)
+            ORDER BY o.seq_no
+            LIMIT :limit
+            FOR UPDATE""", nativeQuery = true)
+    List<OutboxEvent> lockReadyBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Транзакционная advisory-блокировка: пачку выбирает только один экземпляр
+     * сервиса одновременно, и две выборки не берут одни и те же строки.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockId)", nativeQuery = true)
+    boolean tryRelayLock(@Param("lockId") long lockId);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.attempts = :attempts, o.nextAttemptAt = :nextAttemptAt WHERE o.id = :id")
+    void reschedule(@Param("id") long id,
+                    @Param("attempts") int attempts,
+                    @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Переносит событие в user_outbox_dead_letter одним запросом.
+     */
+    @Modifying
+    @Query(value = """
+            WITH moved AS (DELETE FROM user_outbox WHERE id = :id
+                           RETURNING id, seq_no, event_key, payload, created_at)
+            INSERT INTO user_outbox_dead_letter (id, seq_no, event_key, payload, error, created_at, failed_at)
+            SELECT id, seq_no, event_key, payload, :error, created_at, :failedAt FROM moved""", nativeQuery = true)
+    void moveToDeadLetter(@Param("id") long id,
+                          @Param("error") String error,
+                          @Param("failedAt") LocalDateTime failedAt);
+}
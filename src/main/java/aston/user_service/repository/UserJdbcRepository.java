@@ -0,0 +1,507 @@
+package user_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import user_service.cache.UserSecondLevelCache;
+import user_service.model.User;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+/**
+ * Запросы к таблице users в обход persistence context: строки читаются
+ * курсором и не накапливаются в памяти. Измененные и удаленные строки
+ * вытесняются из кэша второго уровня Hibernate ({@link UserSecondLevelCache}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserJdbcRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Шаг users_seq (миграция V3) и allocationSize в {@link User}: по схеме pooled-lo
+     * значение nextval — начало блока из стольких id, принадлежащего получившему его.
+     */
+    public static final int ID_BLOCK_SIZE = 500;
+
+    private static final String USER_COLUMNS = "id, name, email, age, created_at, updated_at, version";
+
+    private static final String SELECT_ALL_ORDERED =
+            "SELECT " + USER_COLUMNS + " FROM users ORDER BY id";
+
+    private static final String SELECT_ALL_EMAILS =
+            "SELECT lower(email) FROM users";
+
+    private static final String SELECT_LAST_OUTBOX_SEQ_NO =
+            "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM user_outbox_seq_no_seq";
+
+    // Один снимок на все: какие seq_no еще ждут отправки или ушли в dead letter,
+    // и какие транзакции в этот момент еще не завершены (xmin, xmax снимка)
+    private static final String SELECT_OUTBOX_SEQ_NO_STATUS =
+            "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint AS xmin,"
+                    + " pg_snapshot_xmax(pg_current_snapshot())::text::bigint AS xmax,"
+                    + " ARRAY(SELECT seq_no FROM user_outbox WHERE seq_no = ANY(?)) AS pending,"
+                    + " ARRAY(SELECT seq_no FROM user_outbox_dead_letter WHERE seq_no = ANY(?)) AS dead_lettered";
+
+    private static final String SELECT_BY_ID =
+            "SELECT " + USER_COLUMNS + " FROM users WHERE id = ?";
+
+    private static final String SELECT_BY_IDS =
+            "SELECT " + USER_COLUMNS + " FROM users WHERE id = ANY(?)";
+
+    private static final String SELECT_BY_EMAILS =
+            "SELECT " + USER_COLUMNS + " FROM users WHERE lower(email) = ANY(?)";
+
+    private static final String UPDATED_USER_COLUMNS =
+            "u.id, u.name, u.email, u.age, u.created_at, u.updated_at, u.version, "
+                    + "previous.name AS previous_name, previous.email AS previous_email, previous.age AS previous_age";
+
+    private static final String DELETE_BY_ID =
+            "DELETE FROM users WHERE id = ? RETURNING id, email, version";
+
+    private static final String DELETE_BY_ID_AND_VERSION =
+            "DELETE FROM users WHERE id = ? AND version = ANY(?) RETURNING id, email, version";
+
+    private static final String DELETE_BY_IDS =
+            "DELETE FROM users WHERE id = ANY(?) RETURNING id, email, version";
+
+    private static final String DELETE_CREATED_BEFORE =
+            "DELETE FROM users WHERE id IN (SELECT id FROM users WHERE created_at < ? ORDER BY id LIMIT ?) "
+                    + "RETURNING id, email, version";
+
+    private static final String NEXT_ID_BLOCKS =
+            "SELECT nextval('users_seq') FROM generate_series(1, ?)";
+
+    private static final String CREATE_IMPORT_TABLE =
+            "CREATE TEMP TABLE users_import (id BIGINT, name VARCHAR(255), email VARCHAR(255), age INTEGER) "
+                    + "ON COMMIT DROP";
+
+    private static final String COPY_IMPORT =
+            "COPY users_import (id, name, email, age) FROM STDIN (FORMAT csv)";
+
+    private static final String INSERT_IMPORTED =
+            "INSERT INTO users (" + USER_COLUMNS + ") "
+                    + "SELECT id, name, email, age, ?, ?, 0 FROM users_import ORDER BY id "
+                    + "ON CONFLICT (lower(email)) DO NOTHING RETURNING " + USER_COLUMNS;
+
+    private static final RowMapper<DeletedUser> DELETED_USER_ROW_MAPPER =
+            (rs, rowNum) -> new DeletedUser(rs.getLong("id"), rs.getString("email"), rs.getLong("version"));
+
+    static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> User.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .email(rs.getString("email"))
+            .age(rs.getInt("age"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+            .version(rs.getLong("version"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserSecondLevelCache secondLevelCache;
+
+    /**
+     * Передает всех пользователей в {@code consumer} по одному, в порядке id.
+     * PostgreSQL использует серверный курсор только внутри транзакции,
+     * поэтому метод транзакционный.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<User> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_ALL_ORDERED,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (ResultSet rs) -> {
+            consumer.accept(USER_ROW_MAPPER.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    /**
+     * Передает email всех пользователей (в нижнем регистре) в {@code consumer}
+     * без сортировки, курсором — как {@link #streamAll}.
+     * <p>
+     * Чтение идет в одном снимке REPEATABLE READ, и первым запросом снимка читается
+     * последний выданный seq_no outbox. Последовательность вне MVCC, поэтому событие
+     * с большим seq_no записано транзакцией, зафиксированной уже после начала снимка:
+     * ее изменение в прочитанных email еще не отражено. Транзакция не read-only и идет
+     * на primary: снимок отстающей реплики не видел бы уже отправленные события.
+     *
+     * @return последний seq_no outbox на момент снимка
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public long streamEmails(Consumer<String> consumer) {
+        Long lastOutboxSeqNo = jdbcTemplate.queryForObject(SELECT_LAST_OUTBOX_SEQ_NO, Long.class);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_ALL_EMAILS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (ResultSet rs) -> {
+            consumer.accept(rs.getString(1));
+        });
+        return lastOutboxSeqNo == null ? 0 : lastOutboxSeqNo;
+    }
+
+    /**
+     * Последний выданный seq_no outbox: одна строка последовательности, таблицы не читаются.
+     * Значение вне MVCC и включает еще не зафиксированные события. Запрос идет на primary.
+     */
+    public long lastOutboxSeqNo() {
+        Long lastOutboxSeqNo = jdbcTemplate.queryForObject(SELECT_LAST_OUTBOX_SEQ_NO, Long.class);
+        return lastOutboxSeqNo == null ? 0 : lastOutboxSeqNo;
+    }
+
+    /**
+     * Состояние событий outbox с переданными seq_no в одном снимке primary.
+     */
+    public OutboxSeqNoStatus outboxSeqNoStatus(Collection<Long> seqNos) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_OUTBOX_SEQ_NO_STATUS);
+            Array seqNoArray = con.createArrayOf("bigint", seqNos.toArray());
+            ps.setArray(1, seqNoArray);
+            ps.setArray(2, seqNoArray);
+            return ps;
+        }, (ResultSet rs) -> {
+            rs.next();
+            return new OutboxSeqNoStatus(rs.getLong("xmin"), rs.getLong("xmax"),
+                    seqNoSet(rs.getArray("pending")), seqNoSet(rs.getArray("dead_lettered")));
+        });
+    }
+
+    private static Set<Long> seqNoSet(Array array) throws SQLException {
+        Set<Long> seqNos = new HashSet<>();
+        for (Object seqNo : (Object[]) array.getArray()) {
+            seqNos.add(((Number) seqNo).longValue());
+        }
+        return seqNos;
+    }
+
+    /**
+     * Выделяет {@code count} новых id из users_seq блоками по {@value #ID_BLOCK_SIZE}
+     * одним запросом; id возрастают в пределах блока.
+     */
+    public long[] allocateIds(int count) {
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> starts = jdbcTemplate.queryForList(NEXT_ID_BLOCKS, Long.class, blocks);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = starts.get(i / ID_BLOCK_SIZE) + i % ID_BLOCK_SIZE;
+        }
+        return ids;
+    }
+
+    /**
+     * Вставляет пачку через {@code COPY} во временную таблицу и один
+     * {@code INSERT ... SELECT ... ON CONFLICT (lower(email)) DO NOTHING}: строки с уже занятым
+     * email, в том числе занятым еще не завершенной параллельной транзакцией (вставка ждет ее
+     * итога), и повторы email внутри пачки (кроме первого по id) пропускаются без ошибки.
+     * Временная таблица удаляется при завершении транзакции.
+     *
+     * @return вставленные пользователи
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<User> insertIgnoringDuplicates(List<ImportRow> rows, LocalDateTime now) {
+        StringBuilder csv = new StringBuilder(rows.size() * 64);
+        for (ImportRow row : rows) {
+            csv.append(row.id()).append(',');
+            appendQuoted(csv, row.name()).append(',');
+            appendQuoted(csv, row.email()).append(',');
+            csv.append(row.age()).append('\n');
+        }
+        jdbcTemplate.execute(CREATE_IMPORT_TABLE);
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_IMPORT, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return jdbcTemplate.query(INSERT_IMPORTED, USER_ROW_MAPPER, now, now);
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+
+    /**
+     * Пользователь {@code id}; при непустом {@code expectedVersions} — только если
+     * его версия входит в него. Строка не блокируется и не меняется.
+     */
+    public Optional<User> findById(Long id, Collection<Long> expectedVersions) {
+        boolean conditional = expectedVersions != null && !expectedVersions.isEmpty();
+        String select = conditional ? SELECT_BY_ID + " AND version = ANY(?)" : SELECT_BY_ID;
+        List<Object> args = conditional ? List.of(id, expectedVersions) : List.of(id);
+        return jdbcTemplate.query(con -> prepare(con, select, args), USER_ROW_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Обновляет переданные (не null) поля одним {@code UPDATE ... RETURNING}
+     * и возвращает строку в состоянии после обновления вместе с прежними значениями
+     * полей; version увеличивается. Прежние значения читаются в том же запросе
+     * под блокировкой строки, поэтому соответствуют именно этому обновлению.
+     * Если ни одно поле не передано, строка только читается ({@link #findById(Long, Collection)}).
+     * Если {@code expectedVersions} не пуст, строка меняется, только если ее версия
+     * входит в него. Пустой результат: пользователя нет или его версия не из ожидаемых.
+     * <p>
+     * updated_at ставится из {@code now}, а не часами сессии БД: Last-Modified
+     * переводит его в момент времени в часовом поясе JVM, как и значения,
+     * записанные Hibernate.
+     */
+    public Optional<UpdatedUser> update(Long id, String name, String email, Integer age,
+                                        Collection<Long> expectedVersions, LocalDateTime now) {
+        boolean conditional = expectedVersions != null && !expectedVersions.isEmpty();
+        StringJoiner assignments = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(6);
+        args.add(id);
+        if (conditional) {
+            args.add(expectedVersions);
+        }
+        if (name != null) {
+            assignments.add("name = ?");
+            args.add(name);
+        }
+        if (email != null) {
+            assignments.add("email = ?");
+            args.add(email);
+        }
+        if (age != null) {
+            assignments.add("age = ?");
+            args.add(age);
+        }
+        String versionCondition = conditional ? " AND version = ANY(?)" : "";
+        if (assignments.length() == 0) {
+            return findById(id, expectedVersions)
+                    .map(user -> new UpdatedUser(user, user.getName(), user.getEmail(), user.getAge()));
+        }
+
+        args.add(now);
+        String sql = "WITH previous AS (SELECT id, name, email, age FROM users WHERE id = ?" + versionCondition
+                + " FOR UPDATE) UPDATE users u SET " + assignments
+                + ", version = u.version + 1, updated_at = ? FROM previous WHERE u.id = previous.id"
+                + " RETURNING " + UPDATED_USER_COLUMNS;
+        Optional<UpdatedUser> updated = jdbcTemplate.query(con -> prepare(con, sql, args),
+                (rs, rowNum) -> new UpdatedUser(
+                        USER_ROW_MAPPER.mapRow(rs, rowNum),
+                        rs.getString("previous_name"),
+                        rs.getString("previous_email"),
+                        rs.getObject("previous_age", Integer.class))).stream().findFirst();
+        updated.ifPresent(u -> secondLevelCache.evict(id));
+        return updated;
+    }
+
+    /**
+     * Удаляет пользователя; при непустом {@code expectedVersions} — только если
+     * его версия входит в него.
+     *
+     * @return удаленный пользователь или пустой результат, если строка не удалена
+     */
+    public Optional<DeletedUser> deleteById(Long id, Collection<Long> expectedVersions) {
+        List<DeletedUser> deleted = expectedVersions == null || expectedVersions.isEmpty()
+                ? jdbcTemplate.query(DELETE_BY_ID, DELETED_USER_ROW_MAPPER, id)
+                : jdbcTemplate.query(con -> prepare(con, DELETE_BY_ID_AND_VERSION, List.of(id, expectedVersions)),
+                        DELETED_USER_ROW_MAPPER);
+        evict(deleted);
+        return deleted.stream().findFirst();
+    }
+
+    /**
+     * Удаляет пользователей с переданными id одним запросом.
+     * Отсутствующие id пропускаются.
+     */
+    public List<DeletedUser> deleteByIds(Collection<Long> ids) {
+        List<DeletedUser> deleted = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_BY_IDS);
+            Array idArray = con.createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, idArray);
+            return ps;
+        }, DELETED_USER_ROW_MAPPER);
+        evict(deleted);
+        return deleted;
+    }
+
+    /**
+     * Подготавливает запрос с параметрами {@code args}; коллекция передается
+     * как массив bigint для условия {@code = ANY(?)}.
+     */
+    private static PreparedStatement prepare(Connection con, String sql, List<Object> args) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i) instanceof Collection<?> values) {
+                ps.setArray(i + 1, con.createArrayOf("bigint", values.toArray()));
+            } else {
+                StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, args.get(i));
+            }
+        }
+        return ps;
+    }
+
+    /**
+     * Пользователи с любым из {@code ids} одним запросом; порядок не гарантируется.
+     */
+    public List<User> findByIds(Collection<Long> ids) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_BY_IDS);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, USER_ROW_MAPPER);
+    }
+
+    /**
+     * Пользователи с любым из {@code emails}; адреса должны быть уже нормализованы,
+     * условие совпадает с уникальным индексом по lower(email).
+     */
+    public List<User> findByEmails(Collection<String> emails) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_BY_EMAILS);
+            ps.setArray(1, con.createArrayOf("text", emails.toArray()));
+            return ps;
+        }, USER_ROW_MAPPER);
+    }
+
+    /**
+     * Удаляет не больше {@code limit} самых ранних по id пользователей,
+     * зарегистрированных раньше {@code createdBefore}.
+     */
+    public List<DeletedUser> deleteCreatedBefore(LocalDateTime createdBefore, int limit) {
+        List<DeletedUser> deleted = jdbcTemplate.query(DELETE_CREATED_BEFORE, DELETED_USER_ROW_MAPPER, createdBefore, limit);
+        evict(deleted);
+        return deleted;
+    }
+
+    private void evict(List<DeletedUser> deleted) {
+        secondLevelCache.evictAll(deleted.stream().map(DeletedUser::id).toList());
+    }
+
+    /**
+     * Поиск с фильтрами и keyset-пагинацией. Каждое условие и порядок
+     * (значение, id) совпадают с индексами из миграции V2, поэтому выборка
+     * страницы — это диапазонное чтение индекса, а не сортировка таблицы.
+     */
+    public List<User> search(UserSearchQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(USER_COLUMNS).append(" FROM users WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (query.namePrefix() != null) {
+            sql.append(" AND lower(name) LIKE ? ESCAPE '\\'");
+            args.add(likePrefix(query.namePrefix()));
+        }
+        if (query.emailPrefix() != null) {
+            sql.append(" AND lower(email) LIKE ? ESCAPE '\\'");
+            args.add(likePrefix(query.emailPrefix()));
+        }
+        if (query.minAge() != null) {
+            sql.append(" AND age >= ?");
+            args.add(query.minAge());
+        }
+        if (query.maxAge() != null) {
+            sql.append(" AND age <= ?");
+            args.add(query.maxAge());
+        }
+        if (query.createdFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(query.createdFrom());
+        }
+        if (query.createdTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(query.createdTo());
+        }
+
+        String column = query.sort().column();
+        String comparison = query.descending() ? " < " : " > ";
+        String direction = query.descending() ? " DESC" : " ASC";
+        if (query.afterId() != null) {
+            if (query.sort() == UserSearchQuery.SortField.ID) {
+                sql.append(" AND id").append(comparison).append("?");
+            } else {
+                sql.append(" AND (").append(column).append(", id)").append(comparison).append("(?, ?)");
+                args.add(query.afterKey());
+            }
+            args.add(query.afterId());
+        }
+        sql.append(" ORDER BY ");
+        if (query.sort() != UserSearchQuery.SortField.ID) {
+            sql.append(column).append(direction).append(", ");
+        }
+        sql.append("id").append(direction).append(" LIMIT ?");
+        args.add(query.limit());
+
+        return jdbcTemplate.query(sql.toString(), USER_ROW_MAPPER, args.toArray());
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    public record ImportRow(long id, String name, String email, int age) {
+    }
+
+    public record DeletedUser(Long id, String email, Long version) {
+    }
+
+    /**
+     * @param xmin         все транзакции с меньшим xid завершены
+     * @param xmax         транзакции, начатые до снимка, имеют меньший xid
+     * @param pending      seq_no, которые еще в user_outbox
+     * @param deadLettered seq_no, перенесенные в user_outbox_dead_letter
+     */
+    public record OutboxSeqNoStatus(long xmin, long xmax, Set<Long> pending, Set<Long> deadLettered) {
+    }
+
+    public record UpdatedUser(User user, String previousName, String previousEmail, Integer previousAge) {
+        /**
+         * Новые значения полей, которые действительно изменились, в порядке name, email, age.
+         */
+        public Map<String, Object> changes() {
+            Map<String, Object> changes = new LinkedHashMap<>(4);
+            if (!Objects.equals(previousName, user.getName())) {
+                changes.put("name", user.getName());
+            }
+            if (!Objects.equals(previousEmail, user.getEmail())) {
+                changes.put("email", user.getEmail());
+            }
+            if (!Objects.equals(previousAge, user.getAge())) {
+                changes.put("age", user.getAge());
+            }
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package user_service.repository;
+
+import user_service.model.User;
+
+import java.util.Optional;
+
+/**
+ * Поиск пользователя по email как по natural id, через кэш второго уровня Hibernate.
+ */
+public interface UserNaturalIdRepository {
+
+    /**
+     * @param email уже нормализованный email
+     */
+    Optional<User> findByEmail(String email);
+}
@@ -0,0 +1,50 @@
+package user_service.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import user_service.model.User;
+
+import java.util.Optional;
+
+/**
+ * Связь email -> id берется прямо из кэша natural id, а пользователь — по id, то есть
+ * из кэша второго уровня. {@code Session#bySimpleNaturalId} при промахе искал бы строку
+ * по {@code email = ?}, а индекс есть только по lower(email), поэтому промах идет
+ * запросом по users_email_lower_key; загруженный им пользователь сам заполняет оба кэша.
+ * <p>
+ * Email изменяется и удаляется в том числе SQL-запросами мимо Hibernate
+ * ({@link UserJdbcRepository}, другие экземпляры сервиса), поэтому связь из кэша может
+ * устареть. Найденный по ней пользователь сверяется с email; при расхождении или если
+ * пользователь не найден связь вытесняется, а ответ дает запрос по индексу. Настоящие
+ * промахи сюда почти не доходят: их раньше отсекает фильтр существования email в сервисе.
+ */
+@RequiredArgsConstructor
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+    private static final String FIND_BY_EMAIL = "select u from User u where lower(u.email) = :email";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(User.class);
+        NaturalIdDataAccess naturalIdCache = persister.getNaturalIdCacheAccessStrategy();
+        if (naturalIdCache != null && session.getCacheMode().isGetEnabled()) {
+            Object cacheKey = naturalIdCache.generateCacheKey(email, persister, session);
+            if (naturalIdCache.get(session, cacheKey) instanceof Long id) {
+                User user = entityManager.find(User.class, id);
+                if (user != null && email.equals(user.getEmail())) {
+                    return Optional.of(user);
+                }
+                naturalIdCache.evict(cacheKey);
+            }
+        }
+        return entityManager.createQuery(FIND_BY_EMAIL, User.class)
+                .setParameter("email", email)
+                .getResultStream()
+                .findFirst();
+    }
+}
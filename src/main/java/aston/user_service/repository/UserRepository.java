@@ -1,11 +1,23 @@
 package user_service.repository;
 
+import org.springframework.data.domain.Limit;
 import user_service.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.Optional;
+import java.util.List;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+/**
+ * Email хранится нормализованным ({@link user_service.mapper.UserMapper#normalizeEmail}),
+ * а запросы по нему идут через {@code lower(email)}, чтобы использовать
+ * уникальный индекс users_email_lower_key. Аргументы должны быть уже нормализованы.
+ * {@code findByEmail} — в {@link UserNaturalIdRepository}, через кэш natural id.
+ */
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
+    @Query("select count(u) > 0 from User u where lower(u.email) = :email")
+    boolean existsByEmail(@Param("email") String email);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 
 }
@@ -0,0 +1,39 @@
+package user_service.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Параметры поиска пользователей для {@link UserJdbcRepository#search}.
+ * Любой фильтр может быть null. {@code afterKey}/{@code afterId} — позиция
+ * последней строки предыдущей страницы в порядке {@code sort}; для сортировки
+ * по id {@code afterKey} не используется.
+ */
+public record UserSearchQuery(
+        String namePrefix,
+        String emailPrefix,
+        Integer minAge,
+        Integer maxAge,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo,
+        SortField sort,
+        boolean descending,
+        Object afterKey,
+        Long afterId,
+        int limit) {
+
+    public enum SortField {
+        ID("id"),
+        CREATED_AT("created_at"),
+        AGE("age");
+
+        private final String column;
+
+        SortField(String column) {
+            this.column = column;
+        }
+
+        String column() {
+            return column;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package user_service.service;
+
+import user_service.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Кодирование курсора keyset-пагинации. Клиент получает курсор как
+ * непрозрачную строку и передает его обратно без изменений.
+ */
+final class PageCursor {
+    private static final char KEY_SEPARATOR = '|';
+
+    private PageCursor() {
+    }
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static long decodeId(String cursor) {
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (IllegalArgumentException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    /**
+     * Курсор для сортировки по неуникальному полю: значение поля последней
+     * строки и ее id.
+     */
+    static String encode(String lastKey, long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((lastKey + KEY_SEPARATOR + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decodePosition(String cursor) {
+        try {
+            String value = decode(cursor);
+            int separator = value.lastIndexOf(KEY_SEPARATOR);
+            if (separator < 0) {
+                throw invalid(cursor);
+            }
+            return new Position(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    private static BadRequestException invalid(String cursor) {
+        return new BadRequestException("Invalid cursor: " + cursor);
+    }
+
+    record Position(String key, long id) {
+    }
+}
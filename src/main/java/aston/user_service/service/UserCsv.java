@@ -0,0 +1,143 @@
+package user_service.service;
+
+import user_service.exception.BadRequestException;
+import user_service.model.User;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV по RFC 4180 для выгрузки и загрузки пользователей: разделитель запятая,
+ * поля с запятой, кавычкой или переводом строки заключаются в кавычки.
+ */
+public final class UserCsv {
+    public static final String HEADER = "id,name,email,age,created_at,updated_at,version";
+
+    private UserCsv() {
+    }
+
+    public static String row(User user) {
+        StringBuilder row = new StringBuilder(96);
+        row.append(user.getId()).append(',');
+        appendField(row, user.getName()).append(',');
+        appendField(row, user.getEmail()).append(',');
+        row.append(user.getAge()).append(',')
+                .append(user.getCreatedAt()).append(',')
+                .append(user.getUpdatedAt()).append(',')
+                .append(user.getVersion()).append('\n');
+        return row.toString();
+    }
+
+    static StringBuilder appendField(StringBuilder row, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return row.append(value);
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    /**
+     * Читает записи по одной; запись в кавычках может занимать несколько строк.
+     * Принимает окончания строк \n и \r\n. Читает через собственный буфер, по символу
+     * без блокировок {@link java.io.BufferedReader#read()}.
+     */
+    public static final class RecordReader {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private long nextLine = 1;
+        private long line;
+
+        public RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return поля следующей записи или null в конце данных
+         */
+        public List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            line = nextLine;
+            List<String> fields = new ArrayList<>(8);
+            StringBuilder field = new StringBuilder(32);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new BadRequestException("Unterminated quoted field in record starting at line " + line);
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        nextLine++;
+                    }
+                    int last = field.length() - 1;
+                    if (last >= 0 && field.charAt(last) == '\r') {
+                        field.setLength(last);
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        /**
+         * @return номер строки (с 1), с которой началась последняя прочитанная запись
+         */
+        public long line() {
+            return line;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -2,120 +2,572 @@ package user_service.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import user_service.cache.EmailExistenceFilter;
+import user_service.cache.UserCache;
+import user_service.cache.UserLoadCoalescer;
+import user_service.dto.UserBatchCreateResponse;
 import user_service.dto.UserCreateRequest;
+import user_service.dto.UserLookupRequest;
+import user_service.dto.UserLookupResponse;
+import user_service.dto.UserPage;
 import user_service.dto.UserPatchRequest;
 import user_service.dto.UserResponse;
+import user_service.dto.UserSearchRequest;
 import user_service.exception.BadRequestException;
+import user_service.exception.DuplicateEmailException;
 import user_service.exception.NotFoundException;
+import user_service.exception.PreconditionFailedException;
 import user_service.kafka.UserEvent;
-import user_service.kafka.UserEventProducer;
+import user_service.kafka.UserEventOutbox;
 import user_service.mapper.UserMapper;
 import user_service.model.User;
+import user_service.ratelimit.DbConcurrencyLimit;
+import user_service.ratelimit.DbConcurrencyLimiter;
+import user_service.repository.UserJdbcRepository;
 import user_service.repository.UserRepository;
+import user_service.repository.UserSearchQuery;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    public static final int DELETE_CHUNK_SIZE = 5000;
+
     private final UserRepository userRepository;
+    private final UserJdbcRepository userJdbcRepository;
+    private final JsonMapper jsonMapper;
     private final UserMapper userMapper;
-    private final UserEventProducer userEventProducer;
+    private final UserEventOutbox userEventOutbox;
+    private final UserCache userCache;
+    private final EmailExistenceFilter emailFilter;
+    private final UserLoadCoalescer userLoadCoalescer;
+    private final TransactionTemplate transactionTemplate;
+    private final DbConcurrencyLimiter dbLimiter;
 
+    @DbConcurrencyLimit
+    @Transactional
     public UserResponse create(UserCreateRequest request) {
         logger.info("Попытка регистрации нового пользователя с email: {}", request.getEmail());
+        String email = UserMapper.normalizeEmail(request.getEmail());
+        if (emailFilter.isReady() && emailFilter.mightExist(email) && userRepository.existsByEmail(email)) {
+            logger.warn("Отказ в регистрации: email {} уже занят", request.getEmail());
+            throw new DuplicateEmailException("User with email already exists: " + request.getEmail());
+        }
         User user = userMapper.toEntity(request);
 
         try {
-            User saved = userRepository.save(user);
+            User saved = userRepository.saveAndFlush(user);
             logger.debug("Пользователь успешно сохранен в БД с ID: {}", saved.getId());
+            emailFilter.added(saved.getEmail());
 
-            userEventProducer.send(new UserEvent(UserEvent.Operation.CREATE, saved.getEmail()));
+            userEventOutbox.enqueue(UserEvent.created(saved));
 
             return userMapper.toResponse(saved);
         } catch (DataIntegrityViolationException e) {
             logger.warn("Отказ в регистрации: email {} уже занят", request.getEmail());
-            throw new BadRequestException("User with email already exists: " + request.getEmail());
+            throw new DuplicateEmailException("User with email already exists: " + request.getEmail());
         }
     }
 
+    /**
+     * Пакет вставляется одним {@code INSERT ... ON CONFLICT (lower(email)) DO NOTHING RETURNING}
+     * ({@link UserJdbcRepository#insertIgnoringDuplicates}). Элемент, чей email уже занят,
+     * в том числе параллельной регистрацией, или повторен в пакете, вставкой не возвращается
+     * и попадает в ошибки; остальные элементы создаются.
+     */
+    @Transactional
+    public UserBatchCreateResponse createBatch(List<UserCreateRequest> requests) {
+        logger.info("Попытка пакетной регистрации пользователей: {}", requests.size());
+        long[] ids = userJdbcRepository.allocateIds(requests.size());
+        List<UserJdbcRepository.ImportRow> rows = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            User user = userMapper.toEntity(requests.get(i));
+            rows.add(new UserJdbcRepository.ImportRow(ids[i], user.getName(), user.getEmail(), user.getAge()));
+        }
+        Map<Long, User> inserted = new HashMap<>();
+        userJdbcRepository.insertIgnoringDuplicates(rows, LocalDateTime.now())
+                .forEach(user -> inserted.put(user.getId(), user));
+
+        List<User> saved = new ArrayList<>(inserted.size());
+        List<UserBatchCreateResponse.ItemError> errors = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            UserJdbcRepository.ImportRow row = rows.get(i);
+            User user = inserted.get(row.id());
+            if (user != null) {
+                saved.add(user);
+            } else {
+                errors.add(new UserBatchCreateResponse.ItemError(i, row.email(), "User with email already exists: " + row.email()));
+            }
+        }
+        logger.debug("Пакетно сохранено пользователей: {}, отклонено: {}", saved.size(), errors.size());
+        saved.forEach(u -> emailFilter.added(u.getEmail()));
+
+        userEventOutbox.enqueueAll(saved.stream()
+                .map(UserEvent::created)
+                .toList());
+
+        return new UserBatchCreateResponse(saved.stream().map(userMapper::toResponse).toList(), errors);
+    }
+
+    /**
+     * Промахи кэша по одному id, пришедшие одновременно, разделяют одну загрузку
+     * ({@link UserLoadCoalescer}). Транзакция и разрешение лимита БД берутся только для загрузки.
+     */
     public UserResponse getById(Long id) {
         logger.info("Попытка получения пользователя с id: {}", id);
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> {
-                    logger.warn("Пользователь с ID: {} не найден", id);
-                    return new NotFoundException("User not found with id: " + id);
-                });
+        Optional<UserResponse> cached = userCache.getById(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
 
-        logger.debug("Пользователь с ID: {} успешно получен",id);
-        return userMapper.toResponse(user);
+        return userLoadCoalescer.byId(id, () -> loadFromDb(() -> {
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> {
+                        logger.warn("Пользователь с ID: {} не найден", id);
+                        return NotFoundException.user("id", id);
+                    });
+
+            logger.debug("Пользователь с ID: {} успешно получен",id);
+            UserResponse response = userMapper.toResponse(user);
+            userCache.put(response);
+            return response;
+        }));
     }
 
-    public List<UserResponse> getAll() {
-        logger.info("Попытка получения списка всех пользователей");
+    @DbConcurrencyLimit
+    @Transactional(readOnly = true)
+    public UserPage getPage(String cursor, Integer size) {
+        logger.info("Попытка получения страницы пользователей, курсор: {}", cursor);
+        long afterId = cursor == null ? 0L : PageCursor.decodeId(cursor);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.clamp(size, 1, MAX_PAGE_SIZE);
 
-        logger.debug("Список пользователей успешно получен");
-        return userRepository.findAll().stream()
+        List<UserResponse> content = userRepository
+                .findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize)).stream()
                 .map(userMapper::toResponse)
                 .toList();
+
+        String nextCursor = content.size() < pageSize
+                ? null
+                : PageCursor.encode(content.getLast().getId());
+        logger.debug("Страница пользователей успешно получена, записей: {}", content.size());
+        return new UserPage(content, nextCursor);
     }
 
-    public UserResponse update(Long id, UserCreateRequest request) {
-        logger.info("Попытка обновления пользователя с id: {}", id);
+    @DbConcurrencyLimit
+    @Transactional(readOnly = true)
+    public UserPage search(UserSearchRequest request) {
+        logger.info("Поиск пользователей, курсор: {}", request.getCursor());
+        String[] sort = request.getSort() == null ? new String[]{"id"} : request.getSort().split(",");
+        UserSearchQuery.SortField sortField = switch (sort[0]) {
+            case "createdAt" -> UserSearchQuery.SortField.CREATED_AT;
+            case "age" -> UserSearchQuery.SortField.AGE;
+            default -> UserSearchQuery.SortField.ID;
+        };
+        boolean descending = sort.length > 1 && sort[1].equals("desc");
+        int pageSize = request.getSize() == null ? DEFAULT_PAGE_SIZE : Math.clamp(request.getSize(), 1, MAX_PAGE_SIZE);
+
+        Object afterKey = null;
+        Long afterId = null;
+        if (request.getCursor() != null) {
+            if (sortField == UserSearchQuery.SortField.ID) {
+                afterId = PageCursor.decodeId(request.getCursor());
+            } else {
+                PageCursor.Position position = PageCursor.decodePosition(request.getCursor());
+                afterKey = parseSortKey(sortField, position.key(), request.getCursor());
+                afterId = position.id();
+            }
+        }
 
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("User not found with id: " + id));
+        List<User> users = userJdbcRepository.search(new UserSearchQuery(
+                request.getName(), request.getEmail(),
+                request.getMinAge(), request.getMaxAge(),
+                request.getCreatedFrom(), request.getCreatedTo(),
+                sortField, descending, afterKey, afterId, pageSize));
 
-        user.setName(request.getName());
-        user.setEmail(request.getEmail());
-        user.setAge(request.getAge());
+        String nextCursor = users.size() < pageSize ? null : nextSearchCursor(sortField, users.getLast());
+        logger.debug("Поиск пользователей завершен, записей: {}", users.size());
+        return new UserPage(users.stream().map(userMapper::toResponse).toList(), nextCursor);
+    }
 
+    private static Object parseSortKey(UserSearchQuery.SortField sortField, String key, String cursor) {
         try {
-            User updated = userRepository.save(user);
-            logger.debug("Пользователь с ID: {} успешно обновлен",id);
-            return userMapper.toResponse(updated);
-        } catch (DataIntegrityViolationException e) {
-            logger.warn("Отказ обновления, пользователь с email: {} уже существует", user.getEmail());
-            throw new BadRequestException("User with email already exists: " + request.getEmail());
+            return switch (sortField) {
+                case CREATED_AT -> LocalDateTime.parse(key);
+                case AGE -> Integer.valueOf(key);
+                case ID -> Long.valueOf(key);
+            };
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static String nextSearchCursor(UserSearchQuery.SortField sortField, User last) {
+        return switch (sortField) {
+            case CREATED_AT -> PageCursor.encode(last.getCreatedAt().toString(), last.getId());
+            case AGE -> PageCursor.encode(last.getAge().toString(), last.getId());
+            case ID -> PageCursor.encode(last.getId());
+        };
+    }
+
+    /**
+     * @return количество выгруженных пользователей
+     */
+    public long streamAll(OutputStream out) throws IOException {
+        logger.info("Потоковая выгрузка всех пользователей (NDJSON)");
+        BufferedOutputStream buffered = new BufferedOutputStream(out, STREAM_BUFFER_SIZE);
+        long[] rows = {0};
+        try {
+            userJdbcRepository.streamAll(user -> {
+                try {
+                    buffered.write(jsonMapper.writeValueAsBytes(userMapper.toResponse(user)));
+                    buffered.write('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        buffered.flush();
+        return rows[0];
     }
 
-    public UserResponse patch(Long id, UserPatchRequest request) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("User not found with id: " + id));
+    /**
+     * @param precondition условие из If-Match или null, если запрос безусловный
+     */
+    @DbConcurrencyLimit
+    @Transactional
+    public UserResponse update(Long id, UserCreateRequest request, VersionPrecondition precondition) {
+        logger.info("Попытка обновления пользователя с id: {}", id);
+        UserResponse updated = applyUpdate(id, request.getName(), UserMapper.normalizeEmail(request.getEmail()),
+                request.getAge(), precondition);
+        logger.debug("Пользователь с ID: {} успешно обновлен",id);
+        return updated;
+    }
 
-        if (request.getName() != null)
-            user.setName(request.getName().trim());
-        if (request.getEmail() != null)
-            user.setEmail(request.getEmail().trim());
-        if (request.getAge() != null)
-            user.setAge(request.getAge());
+    /**
+     * @param precondition условие из If-Match или null, если запрос безусловный
+     */
+    @DbConcurrencyLimit
+    @Transactional
+    public UserResponse patch(Long id, UserPatchRequest request, VersionPrecondition precondition) {
+        return applyUpdate(id,
+                request.getName() == null ? null : request.getName().trim(),
+                UserMapper.normalizeEmail(request.getEmail()),
+                request.getAge(),
+                precondition);
+    }
 
+    /**
+     * Запрос без полей строку не пишет и version не увеличивает: проверяется только
+     * условие If-Match, и возвращается текущее состояние. Любая запись увеличивает
+     * version и публикует UPDATE, даже когда переданные значения совпали с прежними
+     * и changes пуст: другие узлы узнают новую версию для ETag и If-Match.
+     */
+    private UserResponse applyUpdate(Long id, String name, String email, Integer age,
+                                     VersionPrecondition precondition) {
+        if (name == null && email == null && age == null) {
+            User current = userJdbcRepository.findById(id, expectedVersions(precondition))
+                    .orElseThrow(() -> notUpdated(id, precondition));
+            return userMapper.toResponse(current);
+        }
         try {
-            User updated = userRepository.save(user);
-            return userMapper.toResponse(updated);
+            UserJdbcRepository.UpdatedUser updated = userJdbcRepository.update(id, name, email, age,
+                            expectedVersions(precondition), LocalDateTime.now())
+                    .orElseThrow(() -> notUpdated(id, precondition));
+            evictFromCache(List.of(id), updated.user().getVersion());
+            if (!Objects.equals(updated.previousEmail(), updated.user().getEmail())) {
+                emailFilter.added(updated.user().getEmail());
+            }
+            userEventOutbox.enqueue(UserEvent.updated(updated.user(), updated.changes()));
+            return userMapper.toResponse(updated.user());
         } catch (DataIntegrityViolationException e) {
-            throw new BadRequestException("User with email already exists: " + request.getEmail());
+            logger.warn("Отказ обновления, пользователь с email: {} уже существует", email);
+            throw new DuplicateEmailException("User with email already exists: " + email);
         }
     }
 
-    public void delete(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("User not found with id: " + id));
+    private static Set<Long> expectedVersions(VersionPrecondition precondition) {
+        return precondition == null ? null : precondition.versions();
+    }
 
-        userRepository.deleteById(id);
+    /**
+     * Условное изменение не прошло: различает отсутствие пользователя
+     * и несовпадение версии. Дополнительный запрос нужен только в этом случае.
+     * {@code If-Match: *} требует существования, поэтому отсутствие — тоже 412.
+     */
+    private RuntimeException notUpdated(Long id, VersionPrecondition precondition) {
+        if (precondition != null && precondition.anyVersion()) {
+            logger.warn("Пользователь с ID: {} не найден, If-Match требует его существования", id);
+            return new PreconditionFailedException("User " + id + " does not exist");
+        }
+        if (precondition != null && userRepository.existsById(id)) {
+            return modified(id, precondition);
+        }
+        logger.warn("Пользователь с ID: {} не найден", id);
+        return NotFoundException.user("id", id);
+    }
 
-        userEventProducer.send(new UserEvent(UserEvent.Operation.DELETE, user.getEmail()));
+    private PreconditionFailedException modified(Long id, VersionPrecondition precondition) {
+        logger.warn("Пользователь с ID: {} изменен другим запросом, ожидались версии {}", id, precondition.versions());
+        return new PreconditionFailedException("User " + id + " was modified, expected one of versions "
+                + precondition.versions());
     }
 
-    public UserResponse getByEmail(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new NotFoundException("User not found with email: " + email));
-        return userMapper.toResponse(user);
+    /**
+     * Идемпотентное удаление: отсутствие пользователя не считается ошибкой,
+     * событие DELETE публикуется только если строка действительно удалена.
+     * С {@code If-Match: *} отсутствие пользователя — 412: условие требует его существования.
+     *
+     * @param precondition условие из If-Match или null, если запрос безусловный
+     */
+    @DbConcurrencyLimit
+    @Transactional
+    public void delete(Long id, VersionPrecondition precondition) {
+        logger.info("Попытка удаления пользователя с id: {}", id);
+        Optional<UserJdbcRepository.DeletedUser> deleted =
+                userJdbcRepository.deleteById(id, expectedVersions(precondition));
+        if (deleted.isEmpty() && precondition != null) {
+            if (precondition.anyVersion()) {
+                logger.warn("Пользователь с ID: {} не найден, If-Match требует его существования", id);
+                throw new PreconditionFailedException("User " + id + " does not exist");
+            }
+            if (userRepository.existsById(id)) {
+                throw modified(id, precondition);
+            }
+        }
+        evictFromCache(List.of(id), null);
+        deleted.ifPresentOrElse(
+                u -> userEventOutbox.enqueue(UserEvent.deleted(u.id(), u.email(), u.version())),
+                () -> logger.debug("Пользователь с ID: {} уже удален", id));
+    }
+
+    /**
+     * Вытесняет пользователей из {@link UserCache} сразу, а после фиксации транзакции
+     * запоминает их новую версию ({@link UserCache#applyChange}) и вытесняет записи старше.
+     * Ответ, прочитанный до фиксации или с отстающей реплики и положенный в кэш позже,
+     * отбрасывается по версии, а не отдается до истечения ttl, как и для изменений
+     * с других экземпляров. После отката записи только вытесняются.
+     *
+     * @param version версия после изменения; null — пользователи удалены
+     */
+    private void evictFromCache(List<Long> ids, Long version) {
+        ids.forEach(userCache::evict);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(id -> userCache.applyChange(id, version, version == null));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    ids.forEach(id -> userCache.applyChange(id, version, version == null));
+                } else {
+                    ids.forEach(userCache::evict);
+                }
+            }
+        });
+    }
+
+    /**
+     * Удаляет пользователей по списку id порциями по {@value #DELETE_CHUNK_SIZE},
+     * каждая порция — отдельная транзакция вместе со своими событиями DELETE.
+     *
+     * @return количество удаленных пользователей
+     */
+    public long deleteByIds(List<Long> ids) {
+        logger.info("Попытка массового удаления пользователей по id: {}", ids.size());
+        List<Long> distinct = ids.stream().distinct().toList();
+        long deleted = 0;
+        for (int from = 0; from < distinct.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinct.size()));
+            deleted += deleteChunk(() -> userJdbcRepository.deleteByIds(chunk));
+        }
+        logger.debug("Массово удалено пользователей: {}", deleted);
+        return deleted;
+    }
+
+    /**
+     * Удаляет всех пользователей, зарегистрированных раньше {@code createdBefore},
+     * порциями по {@value #DELETE_CHUNK_SIZE}, пока не будет удалена неполная порция.
+     *
+     * @return количество удаленных пользователей
+     */
+    public long deleteCreatedBefore(LocalDateTime createdBefore) {
+        logger.info("Попытка массового удаления пользователей, зарегистрированных до: {}", createdBefore);
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = deleteChunk(() -> userJdbcRepository.deleteCreatedBefore(createdBefore, DELETE_CHUNK_SIZE));
+            deleted += chunk;
+        } while (chunk == DELETE_CHUNK_SIZE);
+        logger.debug("Массово удалено пользователей: {}", deleted);
+        return deleted;
+    }
+
+    private int deleteChunk(Supplier<List<UserJdbcRepository.DeletedUser>> delete) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<UserJdbcRepository.DeletedUser> removed = delete.get();
+            evictFromCache(removed.stream().map(UserJdbcRepository.DeletedUser::id).toList(), null);
+            userEventOutbox.enqueueAll(removed.stream()
+                    .map(u -> UserEvent.deleted(u.id(), u.email(), u.version()))
+                    .toList());
+            return removed.size();
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Как {@link #getById}: одновременные промахи по одному email разделяют одну загрузку.
+     */
+    public UserResponse getByEmail(String rawEmail) {
+        String email = UserMapper.normalizeEmail(rawEmail);
+        Optional<UserResponse> cached = userCache.getByEmail(email);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (!emailFilter.mightExist(email)) {
+            logger.debug("Пользователь с email {} отсутствует по фильтру email", email);
+            throw NotFoundException.user("email", email);
+        }
+
+        return userLoadCoalescer.byEmail(email, () -> loadFromDb(() -> {
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> NotFoundException.user("email", email));
+            UserResponse response = userMapper.toResponse(user);
+            userCache.put(response);
+            return response;
+        }));
+    }
+
+    /**
+     * Read-only транзакция (реплика, если поток не закреплен за primary) под разрешением
+     * {@link DbConcurrencyLimiter} вокруг одной загрузки, а не всего метода сервиса:
+     * попадания в кэш, ответы фильтра email и запросы, ждущие чужую загрузку,
+     * не открывают транзакцию и не занимают разрешение.
+     */
+    private <T> T loadFromDb(Supplier<T> action) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        readOnly.setReadOnly(true);
+        return dbLimiter.call(() -> readOnly.execute(status -> action.get()));
+    }
+
+    /**
+     * Занят ли email. Если фильтр email отвечает «точно нет», БД не запрашивается.
+     */
+    public boolean emailExists(String rawEmail) {
+        String email = UserMapper.normalizeEmail(rawEmail);
+        if (!emailFilter.mightExist(email)) {
+            return false;
+        }
+        if (userCache.getByEmail(email).isPresent()) {
+            return true;
+        }
+        return dbLimiter.call(() -> userRepository.existsByEmail(email));
+    }
+
+    /**
+     * Пользователи по списку id и email: сначала кэш, промахи добираются
+     * не более чем двумя запросами {@code = ANY(?)}; email, которых точно нет
+     * по {@link EmailExistenceFilter}, не запрашиваются. Пользователь, найденный
+     * и по id, и по email, возвращается один раз. Оба запроса идут в одной read-only
+     * транзакции под одним разрешением лимита БД.
+     */
+    public UserLookupResponse lookup(UserLookupRequest request) {
+        Set<Long> ids = request.getIds() == null ? Set.of() : new LinkedHashSet<>(request.getIds());
+        Set<String> emails = new LinkedHashSet<>();
+        if (request.getEmails() != null) {
+            request.getEmails().forEach(email -> emails.add(UserMapper.normalizeEmail(email)));
+        }
+        logger.info("Попытка получения пользователей по ключам: id {}, email {}", ids.size(), emails.size());
+
+        Map<Long, UserResponse> byId = new HashMap<>();
+        List<Long> idMisses = new ArrayList<>();
+        for (Long id : ids) {
+            userCache.getById(id).ifPresentOrElse(u -> byId.put(id, u), () -> idMisses.add(id));
+        }
+        Map<String, UserResponse> byEmail = new HashMap<>();
+        List<String> emailMisses = new ArrayList<>();
+        for (String email : emails) {
+            Optional<UserResponse> cached = userCache.getByEmail(email);
+            if (cached.isPresent()) {
+                byEmail.put(email, cached.get());
+            } else if (emailFilter.mightExist(email)) {
+                emailMisses.add(email);
+            }
+        }
+
+        if (!idMisses.isEmpty() || !emailMisses.isEmpty()) {
+            loadFromDb(() -> {
+                if (!idMisses.isEmpty()) {
+                    for (User user : userJdbcRepository.findByIds(idMisses)) {
+                        UserResponse response = userMapper.toResponse(user);
+                        userCache.put(response);
+                        byId.put(response.getId(), response);
+                    }
+                }
+                if (!emailMisses.isEmpty()) {
+                    for (User user : userJdbcRepository.findByEmails(emailMisses)) {
+                        UserResponse response = userMapper.toResponse(user);
+                        userCache.put(response);
+                        byEmail.put(response.getEmail(), response);
+                    }
+                }
+                return null;
+            });
+        }
+        logger.debug("Запросов к БД по ключам: id {}, email {}", idMisses.size(), emailMisses.size());
+
+        Map<Long, UserResponse> found = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            UserResponse user = byId.get(id);
+            if (user == null) {
+                missingIds.add(id);
+            } else {
+                found.putIfAbsent(id, user);
+            }
+        }
+        List<String> missingEmails = new ArrayList<>();
+        for (String email : emails) {
+            UserResponse user = byEmail.get(email);
+            if (user == null) {
+                missingEmails.add(email);
+            } else {
+                found.putIfAbsent(user.getId(), user);
+            }
+        }
+        return new UserLookupResponse(List.copyOf(found.values()), missingIds, missingEmails);
     }
 
 }
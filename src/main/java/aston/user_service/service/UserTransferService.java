@@ -0,0 +1,296 @@
+package user_service.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.cache.EmailExistenceFilter;
+import user_service.dto.UserCreateRequest;
+import user_service.dto.UserImportResponse;
+import user_service.exception.BadRequestException;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventOutbox;
+import user_service.mapper.UserMapper;
+import user_service.model.User;
+import user_service.repository.UserJdbcRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Полная выгрузка таблицы users и загрузка пользователей из файла (NDJSON или CSV).
+ * Выгрузка читает таблицу курсором и пишет gzip, загрузка идет пачками
+ * по {@value #IMPORT_CHUNK_SIZE} строк через COPY, каждая пачка — отдельная транзакция
+ * вместе с событиями CREATE. Память в обоих случаях не зависит от размера данных.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserTransferService {
+    private static final Logger logger = LoggerFactory.getLogger(UserTransferService.class);
+    public static final int IMPORT_CHUNK_SIZE = 10_000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserService userService;
+    private final UserMapper userMapper;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+    private final UserEventOutbox userEventOutbox;
+    private final EmailExistenceFilter emailFilter;
+    private final TransactionTemplate transactionTemplate;
+
+    public enum Format {
+        NDJSON("ndjson"),
+        CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format of(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unsupported format: " + value + ", expected ndjson or csv");
+            }
+        }
+    }
+
+    /**
+     * Пишет всех пользователей в порядке id в {@code out} в формате gzip.
+     * Сжатие с минимальным уровнем: на больших объемах узкое место — CPU, а не сеть.
+     * NDJSON совпадает с потоковой выдачей {@link UserService#streamAll}, CSV начинается
+     * с заголовка {@value UserCsv#HEADER}.
+     */
+    public void export(Format format, OutputStream out) throws IOException {
+        logger.info("Выгрузка всех пользователей: {}, gzip", format);
+        long started = System.nanoTime();
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        long rows = format == Format.CSV ? writeCsv(gzip) : userService.streamAll(gzip);
+        gzip.finish();
+        out.flush();
+        logger.info("Выгружено пользователей: {} за {} мс", rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long writeCsv(OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        buffered.write((UserCsv.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        long[] rows = {0};
+        try {
+            userJdbcRepository.streamAll(user -> {
+                try {
+                    buffered.write(UserCsv.row(user).getBytes(StandardCharsets.UTF_8));
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+        return rows[0];
+    }
+
+    /**
+     * Загружает пользователей из NDJSON: одна строка — один {@link UserCreateRequest},
+     * лишние поля (например, из выгрузки) игнорируются, пустые строки пропускаются.
+     */
+    public UserImportResponse importNdjson(InputStream in) throws IOException {
+        logger.info("Загрузка пользователей из NDJSON");
+        ObjectReader requestReader = jsonMapper.readerFor(UserCreateRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        Importer importer = new Importer();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(decompressed(in), StandardCharsets.UTF_8), BUFFER_SIZE);
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            UserCreateRequest request;
+            try {
+                request = requestReader.readValue(text);
+            } catch (JacksonException e) {
+                importer.reject(line, null, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            importer.accept(line, request);
+        }
+        return importer.finish();
+    }
+
+    /**
+     * Загружает пользователей из CSV с заголовком, в котором есть столбцы name, email и age
+     * (в любом порядке, остальные столбцы игнорируются — подходит файл выгрузки).
+     */
+    public UserImportResponse importCsv(InputStream in) throws IOException {
+        logger.info("Загрузка пользователей из CSV");
+        UserCsv.RecordReader records = new UserCsv.RecordReader(
+                new InputStreamReader(decompressed(in), StandardCharsets.UTF_8));
+        Importer importer = new Importer();
+        List<String> header = records.next();
+        if (header == null) {
+            return importer.finish();
+        }
+        List<String> columns = header.stream()
+                .map(column -> column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int nameColumn = columns.indexOf("name");
+        int emailColumn = columns.indexOf("email");
+        int ageColumn = columns.indexOf("age");
+        if (nameColumn < 0 || emailColumn < 0 || ageColumn < 0) {
+            throw new BadRequestException("CSV header must contain name, email and age columns: " + header);
+        }
+
+        List<String> fields;
+        while ((fields = records.next()) != null) {
+            if (fields.size() == 1 && fields.getFirst().isBlank()) {
+                continue;
+            }
+            UserCreateRequest request = new UserCreateRequest();
+            request.setName(field(fields, nameColumn));
+            request.setEmail(field(fields, emailColumn));
+            String age = field(fields, ageColumn);
+            if (age != null && !age.isBlank()) {
+                try {
+                    request.setAge(Integer.valueOf(age.trim()));
+                } catch (NumberFormatException e) {
+                    importer.reject(records.line(), request.getEmail(), "age must be an integer");
+                    continue;
+                }
+            }
+            importer.accept(records.line(), request);
+        }
+        return importer.finish();
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    /**
+     * Файл в gzip распознается по сигнатуре, независимо от Content-Encoding.
+     */
+    private static InputStream decompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        return gzip ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    /**
+     * Копит прошедшие валидацию строки и записывает их пачками.
+     */
+    private final class Importer {
+        private final List<UserCreateRequest> requests = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private final List<Long> lines = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private final List<UserImportResponse.LineError> errors = new ArrayList<>();
+        private final long started = System.nanoTime();
+        private long imported;
+        private long rejected;
+
+        void accept(long line, UserCreateRequest request) {
+            Set<ConstraintViolation<UserCreateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(line, request.getEmail(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            requests.add(request);
+            lines.add(line);
+            if (requests.size() == IMPORT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long line, String email, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new UserImportResponse.LineError(line, email, message));
+            }
+        }
+
+        UserImportResponse finish() {
+            flush();
+            logger.info("Загружено пользователей: {}, отклонено строк: {}, за {} мс",
+                    imported, rejected, (System.nanoTime() - started) / 1_000_000);
+            // дубликаты выясняются только при записи пачки, уже после ошибок валидации следующих строк
+            errors.sort(Comparator.comparingLong(UserImportResponse.LineError::getLine));
+            return new UserImportResponse(imported, rejected, errors);
+        }
+
+        private void flush() {
+            if (requests.isEmpty()) {
+                return;
+            }
+            List<UserJdbcRepository.ImportRow> rows = new ArrayList<>(requests.size());
+            Set<Long> insertedIds = new HashSet<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                long[] ids = userJdbcRepository.allocateIds(requests.size());
+                for (int i = 0; i < requests.size(); i++) {
+                    User user = userMapper.toEntity(requests.get(i));
+                    rows.add(new UserJdbcRepository.ImportRow(ids[i], user.getName(), user.getEmail(), user.getAge()));
+                }
+                List<User> inserted = userJdbcRepository.insertIgnoringDuplicates(rows, LocalDateTime.now());
+                inserted.forEach(user -> {
+                    insertedIds.add(user.getId());
+                    emailFilter.added(user.getEmail());
+                });
+                userEventOutbox.enqueueAll(inserted.stream().map(UserEvent::created).toList());
+            });
+            imported += insertedIds.size();
+            for (int i = 0; i < rows.size(); i++) {
+                UserJdbcRepository.ImportRow row = rows.get(i);
+                if (!insertedIds.contains(row.id())) {
+                    reject(lines.get(i), row.email(), "User with email already exists: " + row.email());
+                }
+            }
+            logger.debug("Загружена пачка: {} строк, создано {}", rows.size(), insertedIds.size());
+            requests.clear();
+            lines.clear();
+        }
+    }
+}
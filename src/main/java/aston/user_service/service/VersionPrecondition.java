@@ -0,0 +1,24 @@
+package user_service.service;
+
+import java.util.Set;
+
+/**
+ * Условие If-Match для изменения пользователя. Изменение применяется, только
+ * если пользователь существует и, когда {@code versions} не пуст, его текущая
+ * версия входит в {@code versions}. {@code If-Match: *} — только существование.
+ */
+public record VersionPrecondition(Set<Long> versions) {
+    public static final VersionPrecondition EXISTS = new VersionPrecondition(Set.of());
+
+    public VersionPrecondition {
+        versions = Set.copyOf(versions);
+    }
+
+    public static VersionPrecondition anyOf(Set<Long> versions) {
+        return new VersionPrecondition(versions);
+    }
+
+    public boolean anyVersion() {
+        return versions.isEmpty();
+    }
+}
@@ -0,0 +1,105 @@
+package user_service.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Principal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Идентификатор клиента для поклиентских политик: аутентифицированный пользователь,
+ * а без него — адрес клиента. Заголовок {@value #HEADER} принимается только от
+ * доверенных прокси ({@code app.client-identity.trusted-proxies}: адреса или подсети
+ * вида 10.0.0.0/8): остальные клиенты могли бы менять его в каждом запросе
+ * и обходить свой лимит.
+ */
+@Component
+public class ClientIdentity {
+    public static final String HEADER = "X-Client-Id";
+
+    private final List<Subnet> trustedProxies;
+
+    public ClientIdentity(@Value("${app.client-identity.trusted-proxies:}") List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .filter(proxy -> !proxy.isBlank())
+                .map(Subnet::parse)
+                .toList();
+    }
+
+    public String of(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return principal.getName();
+        }
+        String remoteAddr = request.getRemoteAddr();
+        if (isTrustedProxy(remoteAddr)) {
+            String clientId = request.getHeader(HEADER);
+            if (clientId != null && !clientId.isBlank()) {
+                return clientId;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String remoteAddr) {
+        if (trustedProxies.isEmpty() || remoteAddr == null) {
+            return false;
+        }
+        byte[] address = Subnet.literal(remoteAddr);
+        return address != null && trustedProxies.stream().anyMatch(subnet -> subnet.contains(address));
+    }
+
+    private record Subnet(byte[] network, int prefixLength) {
+        private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+        static Subnet parse(String value) {
+            String trimmed = value.trim();
+            int slash = trimmed.indexOf('/');
+            byte[] network = literal(slash < 0 ? trimmed : trimmed.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("Trusted proxy must be an IP address or subnet: " + value);
+            }
+            int prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(trimmed.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length: " + value);
+            }
+            return new Subnet(network, prefixLength);
+        }
+
+        /**
+         * Байты IP-литерала или null, если строка не адрес: имена хостов не разрешаются.
+         */
+        static byte[] literal(String value) {
+            if (!value.contains(":") && !IPV4.matcher(value).matches()) {
+                return null;
+            }
+            try {
+                return InetAddress.getByName(value).getAddress();
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
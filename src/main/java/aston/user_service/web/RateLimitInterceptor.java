@@ -0,0 +1,97 @@
+package user_service.web;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import user_service.exception.ServiceOverloadedException;
+import user_service.exception.TooManyRequestsException;
+import user_service.metrics.UserMetrics;
+import user_service.ratelimit.AimdLimiter;
+import user_service.ratelimit.BulkRequest;
+import user_service.ratelimit.RequestBudget;
+import user_service.ratelimit.RequestLimiters;
+import user_service.ratelimit.TokenBucket;
+
+import java.time.Duration;
+
+/**
+ * Допуск запросов к контроллерам до вызова сервиса: бакет клиента, бакет эндпоинта
+ * (429) и адаптивный лимит одновременных запросов (503). Отказ бросается исключением
+ * и превращается в ответ с Retry-After в {@code GlobalExceptionHandler}.
+ * Токены, взятые до отказа следующего лимита, возвращаются в бакеты: отклоненный
+ * запрос не выполнялся и не должен расходовать бюджет клиента.
+ * Асинхронный запрос (потоковая выгрузка) отдает разрешение, как только обработчик
+ * вернул тело и началась асинхронная запись: выгрузка идет до часа, и иначе она
+ * занимала бы лимит и искажала замер задержек. Массовые операции ({@link BulkRequest})
+ * держат разрешение до конца, но в замере задержек тоже не участвуют.
+ */
+public class RateLimitInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".permit";
+    private static final Duration OVERLOAD_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final RequestLimiters limiters;
+    private final ClientIdentity clientIdentity;
+    private final UserMetrics userMetrics;
+
+    public RateLimitInterceptor(RequestLimiters limiters, ClientIdentity clientIdentity, UserMetrics userMetrics) {
+        this.limiters = limiters;
+        this.clientIdentity = clientIdentity;
+        this.userMetrics = userMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        RequestBudget budget = RequestBudget.of(request.getMethod(), method);
+        String endpoint = method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+
+        TokenBucket client = limiters.client(clientIdentity.of(request), budget);
+        long waitNanos = client.tryAcquire();
+        if (waitNanos > 0) {
+            userMetrics.rateLimited(endpoint, "client");
+            throw new TooManyRequestsException("Rate limit exceeded for client", Duration.ofNanos(waitNanos));
+        }
+        TokenBucket endpointBucket = limiters.endpoint(endpoint, budget);
+        waitNanos = endpointBucket.tryAcquire();
+        if (waitNanos > 0) {
+            client.refund();
+            userMetrics.rateLimited(endpoint, "endpoint");
+            throw new TooManyRequestsException("Rate limit exceeded for " + endpoint, Duration.ofNanos(waitNanos));
+        }
+        AimdLimiter.Permit permit = limiters.concurrency(budget).tryAcquire();
+        if (permit == null) {
+            client.refund();
+            endpointBucket.refund();
+            userMetrics.rateLimited(endpoint, "concurrency");
+            throw new ServiceOverloadedException("Too many concurrent requests", OVERLOAD_RETRY_AFTER);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AimdLimiter.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.releaseWithoutSample();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(PERMIT_ATTRIBUTE) instanceof AimdLimiter.Permit permit)) {
+            return;
+        }
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        if (handler instanceof HandlerMethod method && method.hasMethodAnnotation(BulkRequest.class)) {
+            permit.releaseWithoutSample();
+        } else {
+            permit.complete(ex != null || response.getStatus() >= 500);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package user_service.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import user_service.datasource.ReadYourWrites;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Отмечает записи клиента и закрепляет его чтения за primary на время
+ * окна {@link ReadYourWrites}. Запись отмечается и до обработки запроса,
+ * и после: клиент может отправить следующий запрос, как только получит ответ.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadYourWrites readYourWrites;
+    private final ClientIdentity clientIdentity;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String clientId = clientIdentity.of(request);
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (write) {
+            readYourWrites.recordWrite(clientId);
+        }
+        readYourWrites.pinIfRecentWrite(clientId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.unpin();
+            if (write) {
+                readYourWrites.recordWrite(clientId);
+            }
+        }
+    }
+}
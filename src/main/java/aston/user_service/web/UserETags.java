@@ -0,0 +1,116 @@
+package user_service.web;
+
+import user_service.dto.UserResponse;
+import user_service.exception.PreconditionFailedException;
+import user_service.service.VersionPrecondition;
+
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Strong ETag пользователя — версия и представление в кавычках: {@code "3-hal"}.
+ * Версия меняется при каждом изменении записи, поэтому сравнение ETag
+ * не требует ни маппинга, ни сериализации ответа. Представления одной версии
+ * (HAL+JSON, JSON без ссылок, CBOR) различаются по байтам, поэтому strong ETag
+ * у каждого свой. В If-Match подходит ETag любого представления текущей версии.
+ */
+public final class UserETags {
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final char SUFFIX_SEPARATOR = '-';
+
+    public enum Representation {
+        HAL("hal"),
+        INTERNAL_JSON("json"),
+        CBOR("cbor");
+
+        private final String suffix;
+
+        Representation(String suffix) {
+            this.suffix = suffix;
+        }
+
+        static boolean isSuffix(String value) {
+            for (Representation representation : values()) {
+                if (representation.suffix.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private UserETags() {
+    }
+
+    public static String of(UserResponse user, Representation representation) {
+        return "\"" + user.getVersion() + SUFFIX_SEPARATOR + representation.suffix + "\"";
+    }
+
+    public static long lastModified(UserResponse user) {
+        return user.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Разбирает If-Match (RFC 9110, 13.1.1): список ETag через запятую или {@code *}.
+     * If-Match сравнивает строго, поэтому weak ETag и чужие ETag пропускаются;
+     * если не осталось ни одной версии, условие заведомо ложно — 412.
+     *
+     * @return условие или null, если заголовка нет
+     */
+    public static VersionPrecondition precondition(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        if (ifMatch.trim().equals(ANY)) {
+            return VersionPrecondition.EXISTS;
+        }
+        Set<Long> versions = new LinkedHashSet<>();
+        int i = 0;
+        while (i < ifMatch.length()) {
+            char c = ifMatch.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            boolean weak = ifMatch.startsWith(WEAK_PREFIX, i);
+            int open = weak ? i + WEAK_PREFIX.length() : i;
+            int close = open < ifMatch.length() && ifMatch.charAt(open) == '"' ? ifMatch.indexOf('"', open + 1) : -1;
+            if (close < 0) {
+                throw notMatched(ifMatch);
+            }
+            Long version = weak ? null : version(ifMatch.substring(open + 1, close));
+            if (version != null) {
+                versions.add(version);
+            }
+            i = close + 1;
+        }
+        if (versions.isEmpty()) {
+            throw notMatched(ifMatch);
+        }
+        return VersionPrecondition.anyOf(versions);
+    }
+
+    /**
+     * @return версия из значения ETag этого сервиса или null, если ETag чужой
+     */
+    private static Long version(String value) {
+        int separator = value.indexOf(SUFFIX_SEPARATOR);
+        if (separator >= 0) {
+            if (!Representation.isSuffix(value.substring(separator + 1))) {
+                return null;
+            }
+            value = value.substring(0, separator);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static PreconditionFailedException notMatched(String ifMatch) {
+        return new PreconditionFailedException("If-Match does not match the current entity tag: " + ifMatch);
+    }
+}
@@ -0,0 +1,20 @@
+package user_service.web;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Представления для внутренних вызовов между сервисами: те же
+ * {@link user_service.dto.UserResponse} и {@link user_service.dto.UserPage},
+ * но без HAL-ссылок. Публичный API по-прежнему отдает HAL.
+ */
+public final class UserMediaTypes {
+    /** JSON без ссылок. */
+    public static final String INTERNAL_JSON_VALUE = "application/vnd.user-service+json";
+    public static final MediaType INTERNAL_JSON = MediaType.parseMediaType(INTERNAL_JSON_VALUE);
+
+    /** CBOR: бинарное кодирование той же структуры. */
+    public static final String CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+    private UserMediaTypes() {
+    }
+}
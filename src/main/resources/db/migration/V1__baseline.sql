@@ -0,0 +1,25 @@
+-- Схема на момент перехода на Flyway. IF NOT EXISTS позволяет применить
+-- скрипт к базе, которую раньше создавал Hibernate (ddl-auto).
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL UNIQUE,
+    age        INTEGER      NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS user_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS user_outbox (
+    id              BIGINT       NOT NULL PRIMARY KEY,
+    event_key       VARCHAR(255) NOT NULL,
+    payload         TEXT         NOT NULL,
+    attempts        INTEGER      NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS user_outbox_key_idx ON user_outbox (event_key, id);
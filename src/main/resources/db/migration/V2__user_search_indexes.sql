@@ -0,0 +1,14 @@
+-- Индексы для GET /api/users/search. Составные индексы с id обслуживают
+-- и фильтр по диапазону, и keyset-сортировку (значение, id) в обе стороны.
+-- text_pattern_ops нужен, чтобы LIKE 'prefix%' использовал индекс
+-- независимо от collation базы.
+-- CONCURRENTLY не блокирует запись в users на время построения; Flyway
+-- выполняет такую миграцию вне транзакции.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_created_at_id_idx ON users (created_at, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_age_id_idx ON users (age, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_lower_email_pattern_idx ON users (lower(email) text_pattern_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_lower_name_pattern_idx ON users (lower(name) text_pattern_ops);
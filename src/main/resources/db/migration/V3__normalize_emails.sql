@@ -0,0 +1,13 @@
+-- Email хранится в нижнем регистре (UserMapper.normalizeEmail). Если в базе
+-- уже есть адреса, различающиеся только регистром, миграция упадет на
+-- уникальном ограничении: такие дубликаты нужно разобрать вручную.
+UPDATE users SET email = lower(btrim(email)) WHERE email <> lower(btrim(email));
+
+-- Один nextval на пакет вставки (hibernate.jdbc.batch_size = 500).
+-- Hibernate использует оптимизатор pooled-lo: значение последовательности —
+-- первый id блока, поэтому следующее значение ставится сразу за max(id).
+ALTER SEQUENCE users_seq INCREMENT BY 500;
+SELECT setval('users_seq', COALESCE((SELECT max(id) FROM users), 0) + 1, false);
+
+-- Запас места на страницах для HOT-обновлений PATCH/PUT.
+ALTER TABLE users SET (fillfactor = 90);
@@ -0,0 +1,6 @@
+-- Один индекс на lower(email) обслуживает уникальность, поиск по точному
+-- email и поиск по префиксу (text_pattern_ops поддерживает и =, и LIKE 'x%'),
+-- поэтому индекс из V2 становится лишним.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_email_lower_key ON users (lower(email) text_pattern_ops);
+
+DROP INDEX CONCURRENTLY IF EXISTS users_lower_email_pattern_idx;
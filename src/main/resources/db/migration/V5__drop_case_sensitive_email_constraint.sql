@@ -0,0 +1,20 @@
+-- Регистрозависимое ограничение уникальности на email заменено индексом
+-- users_email_lower_key. Имя ограничения зависит от того, кто создал
+-- таблицу (V1 или Hibernate), поэтому оно ищется по каталогу.
+DO $$
+DECLARE
+    constraint_name text;
+BEGIN
+    FOR constraint_name IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = con.conkey[1]
+        WHERE con.conrelid = 'users'::regclass
+          AND con.contype = 'u'
+          AND cardinality(con.conkey) = 1
+          AND att.attname = 'email'
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END
+$$;
@@ -0,0 +1,6 @@
+-- Версия и время изменения для ETag/Last-Modified и условных запросов.
+-- Значение DEFAULT не volatile, поэтому ADD COLUMN не переписывает таблицу:
+-- существующие строки получают version = 0 и updated_at = момент миграции.
+ALTER TABLE users
+    ADD COLUMN version    BIGINT       NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at TIMESTAMP(6) NOT NULL DEFAULT now();
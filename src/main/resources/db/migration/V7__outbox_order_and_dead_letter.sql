@@ -0,0 +1,26 @@
+-- Порядок доставки по ключу. Id outbox выдаются блоками (pooled-lo), поэтому на разных
+-- экземплярах порядок id не совпадает с порядком фиксации. seq_no берется из некэшируемой
+-- последовательности в момент INSERT, а запись в outbox идет после записи строки users
+-- в той же транзакции: следующая транзакция над тем же пользователем ждет блокировку
+-- строки и получает больший seq_no. DEFAULT с nextval переписывает таблицу, но outbox мал.
+CREATE SEQUENCE user_outbox_seq_no_seq;
+
+ALTER TABLE user_outbox
+    ADD COLUMN seq_no BIGINT NOT NULL DEFAULT nextval('user_outbox_seq_no_seq');
+
+ALTER SEQUENCE user_outbox_seq_no_seq OWNED BY user_outbox.seq_no;
+
+DROP INDEX IF EXISTS user_outbox_key_idx;
+CREATE INDEX user_outbox_key_seq_no_idx ON user_outbox (event_key, seq_no);
+CREATE INDEX user_outbox_seq_no_idx ON user_outbox (seq_no);
+
+-- События, которые релей не смог прочитать: убираются из outbox, чтобы не останавливать
+-- доставку, и остаются здесь для разбора.
+CREATE TABLE user_outbox_dead_letter (
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    event_key  VARCHAR(255) NOT NULL,
+    payload    TEXT         NOT NULL,
+    error      TEXT         NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    failed_at  TIMESTAMP(6) NOT NULL
+);
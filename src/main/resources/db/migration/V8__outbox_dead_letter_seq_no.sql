@@ -0,0 +1,6 @@
+-- seq_no события, перенесенного в dead letter: фильтр email пропускает такие seq_no
+-- и не ждет их события. У строк, перенесенных до миграции, значения нет.
+ALTER TABLE user_outbox_dead_letter
+    ADD COLUMN seq_no BIGINT;
+
+CREATE INDEX user_outbox_dead_letter_seq_no_idx ON user_outbox_dead_letter (seq_no);
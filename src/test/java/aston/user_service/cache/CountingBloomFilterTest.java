@@ -0,0 +1,81 @@
+package aston.user_service.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.cache.CountingBloomFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingBloomFilterTest {
+
+    @DisplayName("Не должен давать ложноотрицательных ответов для добавленных значений.")
+    @Test
+    void mightContain_shouldHaveNoFalseNegatives() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+        assertEquals(10_000, filter.approximateSize());
+    }
+
+    @DisplayName("Доля ложноположительных ответов должна быть близка к заданной.")
+    @Test
+    void mightContain_shouldKeepFalsePositiveRateNearTarget() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @DisplayName("Должен забывать удаленное значение и сохранять остальные.")
+    @Test
+    void remove_shouldForgetValueAndKeepOthers() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 1_000; i += 2) {
+            filter.remove("user" + i + "@example.com");
+        }
+
+        for (int i = 1; i < 1_000; i += 2) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+        int stillPresent = 0;
+        for (int i = 0; i < 1_000; i += 2) {
+            if (filter.mightContain("user" + i + "@example.com")) {
+                stillPresent++;
+            }
+        }
+        assertTrue(stillPresent < 25, "still present: " + stillPresent);
+        assertEquals(500, filter.approximateSize());
+    }
+
+    @DisplayName("Повторное добавление должно требовать столько же удалений.")
+    @Test
+    void remove_shouldCountDuplicates() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("a@example.com");
+        filter.add("a@example.com");
+
+        filter.remove("a@example.com");
+        assertTrue(filter.mightContain("a@example.com"));
+
+        filter.remove("a@example.com");
+        assertFalse(filter.mightContain("a@example.com"));
+    }
+}
@@ -0,0 +1,234 @@
+package aston.user_service.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import user_service.cache.EmailExistenceFilter;
+import user_service.repository.UserJdbcRepository;
+import user_service.repository.UserJdbcRepository.OutboxSeqNoStatus;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailExistenceFilterTest {
+
+    private static final Duration GAP_TIMEOUT = Duration.ZERO;
+
+    private final UserJdbcRepository userJdbcRepository = mock(UserJdbcRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        // по умолчанию события еще не зафиксированы: транзакции, выдавшие seq_no, не завершены
+        outboxStatus(new OutboxSeqNoStatus(0, 1, Set.of(), Set.of()));
+    }
+
+    private EmailExistenceFilter filter() {
+        return new EmailExistenceFilter(userJdbcRepository, true, 1_000, 0.01, GAP_TIMEOUT);
+    }
+
+    private void outboxStatus(OutboxSeqNoStatus status) {
+        when(userJdbcRepository.outboxSeqNoStatus(any())).thenReturn(status);
+    }
+
+    private EmailExistenceFilter builtFilter(long lastIssuedSeqNo) {
+        tableContains(10);
+        when(userJdbcRepository.lastOutboxSeqNo()).thenReturn(10L);
+        EmailExistenceFilter filter = filter();
+        filter.build();
+        when(userJdbcRepository.lastOutboxSeqNo()).thenReturn(lastIssuedSeqNo);
+        filter.refreshSyncState();
+        return filter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void tableContains(long lastOutboxSeqNo, String... emails) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            for (String email : emails) {
+                consumer.accept(email);
+            }
+            return lastOutboxSeqNo;
+        }).when(userJdbcRepository).streamEmails(any(Consumer.class));
+    }
+
+    @DisplayName("До построения должен считать любой email возможно существующим.")
+    @Test
+    void mightExist_shouldBeTrue_untilBuilt() {
+        EmailExistenceFilter filter = filter();
+
+        assertTrue(filter.mightExist("a@example.com"));
+        assertFalse(filter.isReady());
+    }
+
+    @DisplayName("После построения должен отвечать по содержимому таблицы и изменениям.")
+    @Test
+    void mightExist_shouldReflectTableAndChanges_whenBuilt() {
+        tableContains(10, "a@example.com");
+        EmailExistenceFilter filter = filter();
+
+        filter.build();
+        filter.added("b@example.com");
+        filter.removed("a@example.com", 11);
+
+        assertTrue(filter.isReady());
+        assertFalse(filter.mightExist("a@example.com"));
+        assertTrue(filter.mightExist("b@example.com"));
+        assertFalse(filter.mightExist("c@example.com"));
+    }
+
+    @DisplayName("Должен пропускать удаления до построения, чтобы не задеть чужие счетчики.")
+    @Test
+    void removed_shouldBeIgnored_untilBuilt() {
+        tableContains(10, "a@example.com");
+        EmailExistenceFilter filter = filter();
+
+        filter.removed("a@example.com", 11);
+        filter.build();
+
+        assertTrue(filter.mightExist("a@example.com"));
+    }
+
+    @DisplayName("Должен пропускать удаления, записанные в outbox до чтения таблицы.")
+    @Test
+    void removed_shouldBeIgnored_whenRecordedBeforeBuild() {
+        tableContains(10, "b@example.com");
+        EmailExistenceFilter filter = filter();
+        filter.build();
+
+        filter.removed("a@example.com", 9);
+        filter.removed("b@example.com", 10);
+
+        assertTrue(filter.mightExist("b@example.com"));
+    }
+
+    @DisplayName("Должен читать таблицу один раз.")
+    @Test
+    void build_shouldScanOnce() {
+        tableContains(0, "a@example.com");
+        EmailExistenceFilter filter = filter();
+
+        filter.build();
+        filter.build();
+
+        verify(userJdbcRepository).streamEmails(any());
+    }
+
+    @DisplayName("Выключенный или не построенный из-за ошибки БД фильтр не должен отвечать «нет».")
+    @Test
+    void mightExist_shouldStayTrue_whenDisabledOrBuildFailed() {
+        EmailExistenceFilter disabled = new EmailExistenceFilter(userJdbcRepository, false, 1_000, 0.01, GAP_TIMEOUT);
+        disabled.build();
+        verifyNoInteractions(userJdbcRepository);
+
+        doThrow(new QueryTimeoutException("timeout")).when(userJdbcRepository).streamEmails(any());
+        EmailExistenceFilter failed = filter();
+        failed.build();
+
+        assertTrue(disabled.mightExist("a@example.com"));
+        assertTrue(failed.mightExist("a@example.com"));
+    }
+
+    @DisplayName("Email пользователя, созданного другим экземпляром, не должен считаться свободным до его события.")
+    @Test
+    void mightExist_shouldBeTrue_whenCreatedByOtherInstanceAndEventPending() {
+        tableContains(10, "a@example.com");
+        when(userJdbcRepository.lastOutboxSeqNo()).thenReturn(10L);
+        EmailExistenceFilter filter = filter();
+        filter.build();
+        assertFalse(filter.mightExist("new@example.com"));
+
+        // другой экземпляр создал пользователя; событие с seq_no 11 отправлено, но еще не прочитано
+        when(userJdbcRepository.lastOutboxSeqNo()).thenReturn(11L);
+        filter.refreshSyncState();
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightExist("new@example.com"));
+
+        // слушатель применил событие
+        filter.added("new@example.com");
+        filter.seen(11);
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightExist("new@example.com"));
+        assertFalse(filter.mightExist("absent@example.com"));
+    }
+
+    @DisplayName("Не должен отвечать «нет», если последний seq_no outbox не удалось прочитать.")
+    @Test
+    void isReady_shouldBeFalse_whenLastSeqNoUnknown() {
+        tableContains(10);
+        EmailExistenceFilter filter = filter();
+        filter.build();
+        assertTrue(filter.isReady());
+
+        when(userJdbcRepository.lastOutboxSeqNo()).thenThrow(new QueryTimeoutException("timeout"));
+        filter.refreshSyncState();
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightExist("absent@example.com"));
+    }
+
+    @DisplayName("События, прочитанные не по порядку seq_no, не должны делать фильтр готовым до появления пропущенного.")
+    @Test
+    void isReady_shouldWaitForEarlierSeqNo_whenEventsArriveOutOfOrder() {
+        EmailExistenceFilter filter = builtFilter(12);
+
+        filter.seen(12);
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightExist("absent@example.com"));
+
+        filter.seen(11);
+        assertTrue(filter.isReady());
+    }
+
+    @DisplayName("Seq_no, перенесенный в dead letter, должен пропускаться.")
+    @Test
+    void isReady_shouldSkipDeadLetteredSeqNo() {
+        EmailExistenceFilter filter = builtFilter(12);
+        filter.seen(12);
+        assertFalse(filter.isReady());
+
+        outboxStatus(new OutboxSeqNoStatus(0, 1, Set.of(), Set.of(11L)));
+        filter.refreshSyncState();
+
+        assertTrue(filter.isReady());
+    }
+
+    @DisplayName("Seq_no откатившейся транзакции должен пропускаться только после завершения транзакций и тайм-аута.")
+    @Test
+    void isReady_shouldSkipRolledBackSeqNo_afterTransactionsFinished() {
+        outboxStatus(new OutboxSeqNoStatus(90, 100, Set.of(), Set.of()));
+        EmailExistenceFilter filter = builtFilter(11);
+        assertFalse(filter.isReady());
+
+        // транзакции, начатые до обнаружения, еще идут
+        filter.refreshSyncState();
+        assertFalse(filter.isReady());
+
+        // все завершены, строки нет: отсчет тайм-аута, затем пропуск
+        outboxStatus(new OutboxSeqNoStatus(100, 105, Set.of(), Set.of()));
+        filter.refreshSyncState();
+        assertFalse(filter.isReady());
+        filter.refreshSyncState();
+
+        assertTrue(filter.isReady());
+    }
+
+    @DisplayName("Seq_no, событие которого еще в outbox, не должен пропускаться.")
+    @Test
+    void isReady_shouldWaitForPendingSeqNo() {
+        outboxStatus(new OutboxSeqNoStatus(100, 105, Set.of(11L), Set.of()));
+        EmailExistenceFilter filter = builtFilter(11);
+
+        filter.refreshSyncState();
+        filter.refreshSyncState();
+
+        assertFalse(filter.isReady());
+        filter.seen(11);
+        assertTrue(filter.isReady());
+    }
+}
@@ -0,0 +1,122 @@
+package aston.user_service.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.cache.SingleFlight;
+import user_service.exception.NotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+
+    @DisplayName("Одновременные вызовы с одним ключом должны получить результат одной загрузки.")
+    @Test
+    void execute_shouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "Ivan";
+        }));
+        awaitCondition(() -> flight.inFlight() == 1);
+        Future<String> first = executor.submit(() -> flight.execute(1L, () -> "other"));
+        Future<String> second = executor.submit(() -> flight.execute(1L, () -> "other"));
+        awaitCondition(() -> flight.coalesced() == 2);
+        release.countDown();
+
+        assertEquals("Ivan", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("Ivan", first.get(5, TimeUnit.SECONDS));
+        assertEquals("Ivan", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.leaders());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @DisplayName("Исключение загрузки должно достаться и ведущему, и присоединившимся.")
+    @Test
+    void execute_shouldPropagateLeaderFailure() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        NotFoundException notFound = NotFoundException.user("id", 1L);
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            await(release);
+            throw notFound;
+        }));
+        awaitCondition(() -> flight.inFlight() == 1);
+        Future<String> follower = executor.submit(() -> flight.execute(1L, () -> "other"));
+        awaitCondition(() -> flight.coalesced() == 1);
+        release.countDown();
+
+        assertSame(notFound, assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(notFound, assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @DisplayName("Не дождавшись загрузки за timeout, вызов должен загрузить сам.")
+    @Test
+    void execute_shouldLoadItself_afterTimeout() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            await(release);
+            return "slow";
+        }));
+        awaitCondition(() -> flight.inFlight() == 1);
+
+        assertEquals("own", flight.execute(1L, () -> "own"));
+        assertEquals(1, flight.timeouts());
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @DisplayName("Разные ключи и последовательные вызовы не должны объединяться.")
+    @Test
+    void execute_shouldNotCoalesceDifferentKeysOrSequentialCalls() {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+
+        assertEquals("a", flight.execute(1L, () -> "a"));
+        assertEquals("b", flight.execute(1L, () -> "b"));
+        assertEquals("c", flight.execute(2L, () -> "c"));
+
+        assertEquals(3, flight.leaders());
+        assertEquals(0, flight.coalesced());
+        assertEquals(0, flight.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package aston.user_service.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.cache.UserCache;
+import user_service.dto.UserResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private UserCache userCache;
+    private UserResponse response;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(100, Duration.ofMinutes(1));
+        response = new UserResponse(1L, "Ivan", "ivan@example.com", 25, LocalDateTime.now(), LocalDateTime.now(), 0L);
+    }
+
+    @DisplayName("Должен находить закэшированного пользователя по id и по email.")
+    @Test
+    void put_shouldIndexByIdAndEmail() {
+        userCache.put(response);
+
+        assertSame(response, userCache.getById(1L).orElseThrow());
+        assertSame(response, userCache.getByEmail("ivan@example.com").orElseThrow());
+        assertEquals(1, userCache.byIdStats().hitCount());
+    }
+
+    @DisplayName("Должен удалять запись и ее email из индекса.")
+    @Test
+    void evict_shouldRemoveIdAndEmail() {
+        userCache.put(response);
+
+        userCache.evict(1L);
+
+        assertTrue(userCache.getById(1L).isEmpty());
+        assertTrue(userCache.getByEmail("ivan@example.com").isEmpty());
+    }
+
+    @DisplayName("Не должен возвращать пользователя по старому email после смены email.")
+    @Test
+    void getByEmail_shouldMiss_whenEmailChanged() {
+        userCache.put(response);
+        userCache.put(new UserResponse(1L, "Ivan", "new@example.com", 25, response.getCreatedAt(), response.getCreatedAt(), 0L));
+
+        assertTrue(userCache.getByEmail("ivan@example.com").isEmpty());
+        assertEquals("new@example.com", userCache.getByEmail("new@example.com").orElseThrow().getEmail());
+    }
+
+    @DisplayName("Должен вытеснить запись, если другой узел изменил пользователя.")
+    @Test
+    void applyChange_shouldEvictOlderVersion() {
+        userCache.put(response);
+
+        userCache.applyChange(1L, 1L, false);
+
+        assertTrue(userCache.getById(1L).isEmpty());
+        assertTrue(userCache.getByEmail("ivan@example.com").isEmpty());
+    }
+
+    @DisplayName("Должен оставить запись, если в кэше уже версия из события.")
+    @Test
+    void applyChange_shouldKeepCurrentVersion() {
+        userCache.put(response);
+
+        userCache.applyChange(1L, 0L, false);
+
+        assertSame(response, userCache.getById(1L).orElseThrow());
+    }
+
+    @DisplayName("Не должен кэшировать ответ, прочитанный до изменения с другого узла.")
+    @Test
+    void put_shouldIgnoreStaleVersion_afterChange() {
+        userCache.applyChange(1L, 1L, false);
+
+        userCache.put(response);
+
+        assertTrue(userCache.getById(1L).isEmpty());
+    }
+
+    @DisplayName("Не должен кэшировать удаленного пользователя.")
+    @Test
+    void applyChange_shouldBlockDeletedUser() {
+        userCache.put(response);
+
+        userCache.applyChange(1L, 0L, true);
+        userCache.put(response);
+
+        assertTrue(userCache.getById(1L).isEmpty());
+    }
+
+    @DisplayName("Ответ, положенный одновременно с изменением с другого узла, не должен остаться в кэше.")
+    @Test
+    void put_shouldNotKeepStaleVersion_whenRacingWithChange() throws Exception {
+        UserCache userCache = new UserCache(100_000, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (long id = 1; id <= 10_000; id++) {
+                long userId = id;
+                UserResponse stale = new UserResponse(userId, "Ivan", "user" + userId + "@example.com", 25,
+                        response.getCreatedAt(), response.getCreatedAt(), 0L);
+                CyclicBarrier start = new CyclicBarrier(2);
+                CompletableFuture<Void> put = CompletableFuture.runAsync(() -> {
+                    await(start);
+                    userCache.put(stale);
+                }, executor);
+                CompletableFuture<Void> change = CompletableFuture.runAsync(() -> {
+                    await(start);
+                    userCache.applyChange(userId, 1L, false);
+                }, executor);
+                CompletableFuture.allOf(put, change).get();
+
+                assertTrue(userCache.getById(userId).isEmpty(), "версия 0 осталась в кэше для id " + userId);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package aston.user_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.cache.UserLoadCoalescer;
+import user_service.datasource.ReadYourWrites;
+import user_service.dto.UserResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserLoadCoalescerTest {
+
+    private final UserResponse response =
+            new UserResponse(1L, "Ivan", "ivan@example.com", 25, LocalDateTime.now(), LocalDateTime.now(), 0L);
+
+    private static double loads(SimpleMeterRegistry registry, String operation) {
+        return registry.get("users.single_flight.loads").tag("operation", operation).functionCounter().count();
+    }
+
+    @DisplayName("Загрузка по id и по email должна идти через single-flight и учитываться в метриках.")
+    @Test
+    void load_shouldGoThroughSingleFlight() {
+        UserLoadCoalescer coalescer = new UserLoadCoalescer(true, Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+
+        assertSame(response, coalescer.byId(1L, () -> response));
+        assertSame(response, coalescer.byEmail("ivan@example.com", () -> response));
+
+        assertEquals(1, loads(registry, "getById"));
+        assertEquals(1, loads(registry, "getByEmail"));
+        assertEquals(0, registry.get("users.single_flight.in_flight").tag("operation", "getById").gauge().value());
+    }
+
+    @DisplayName("Запрос, закрепленный за primary, должен загружать сам, не присоединяясь к чужой загрузке.")
+    @Test
+    void load_shouldBypassSingleFlight_whenPinnedToPrimary() {
+        UserLoadCoalescer coalescer = new UserLoadCoalescer(true, Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        readYourWrites.recordWrite("writer");
+
+        readYourWrites.pinIfRecentWrite("writer");
+        try {
+            assertSame(response, coalescer.byId(1L, () -> response));
+        } finally {
+            readYourWrites.unpin();
+        }
+
+        assertEquals(0, loads(registry, "getById"));
+    }
+
+    @DisplayName("Выключенное объединение должно просто вызывать загрузку.")
+    @Test
+    void load_shouldCallLoaderDirectly_whenDisabled() {
+        UserLoadCoalescer coalescer = new UserLoadCoalescer(false, Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+
+        assertSame(response, coalescer.byEmail("ivan@example.com", () -> response));
+
+        assertEquals(0, loads(registry, "getByEmail"));
+    }
+}
@@ -0,0 +1,157 @@
+package aston.user_service.cache;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import user_service.UserServiceApplication;
+import user_service.cache.UserSecondLevelCache;
+import user_service.model.User;
+import user_service.repository.UserJdbcRepository;
+import user_service.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Каждое чтение — отдельная транзакция, как запрос к сервису: попадание в кэш второго
+ * уровня видно по статистике Hibernate как отсутствие подготовленных SQL-запросов.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(classes = UserServiceApplication.class,
+        properties = {
+                "spring.cloud.config.enabled=false",
+                "eureka.client.enabled=false",
+                "app.kafka.topic=users"
+        })
+class UserSecondLevelCacheContainersTest {
+
+    @Container
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:17-alpine");
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    UserJdbcRepository userJdbcRepository;
+    @Autowired
+    UserSecondLevelCache secondLevelCache;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    HikariDataSource dataSource;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        user = transactionTemplate.execute(status -> userRepository.save(
+                User.builder().name("Ivan").email(email).age(25).build()));
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    @DisplayName("Повторное чтение по id должно браться из кэша второго уровня без запроса к БД.")
+    @Test
+    void findById_shouldHitSecondLevelCache() {
+        inTransaction(() -> userRepository.findById(user.getId()));
+        long statements = statistics.getPrepareStatementCount();
+
+        Optional<User> cached = inTransaction(() -> userRepository.findById(user.getId()));
+
+        assertEquals("Ivan", cached.orElseThrow().getName());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(User.CACHE_REGION).getHitCount());
+    }
+
+    @DisplayName("Повторный поиск по email должен брать id из кэша natural id, а пользователя — из кэша по id.")
+    @Test
+    void findByEmail_shouldHitNaturalIdCache() {
+        inTransaction(() -> userRepository.findByEmail(user.getEmail()));
+        long statements = statistics.getPrepareStatementCount();
+
+        Optional<User> cached = inTransaction(() -> userRepository.findByEmail(user.getEmail()));
+
+        assertEquals(user.getId(), cached.orElseThrow().getId());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(User.CACHE_REGION).getHitCount());
+    }
+
+    @DisplayName("Изменение через JDBC должно вытеснить пользователя, следующее чтение — увидеть новые данные.")
+    @Test
+    void jdbcUpdate_shouldEvictUser() {
+        inTransaction(() -> userRepository.findById(user.getId()));
+        assertTrue(secondLevelCache.contains(user.getId()));
+
+        inTransaction(() -> userJdbcRepository.update(user.getId(), "Petr", null, null, null, LocalDateTime.now()));
+
+        assertFalse(secondLevelCache.contains(user.getId()));
+        assertEquals("Petr", inTransaction(() -> userRepository.findById(user.getId())).orElseThrow().getName());
+    }
+
+    @DisplayName("Смена email через JDBC: прежний email не должен находиться по устаревшей связи email -> id.")
+    @Test
+    void jdbcEmailChange_shouldNotResolveStaleNaturalId() {
+        inTransaction(() -> userRepository.findByEmail(user.getEmail()));
+        String newEmail = "renamed-" + user.getEmail();
+
+        inTransaction(() -> userJdbcRepository.update(user.getId(), null, newEmail, null, null, LocalDateTime.now()));
+
+        assertTrue(inTransaction(() -> userRepository.findByEmail(user.getEmail())).isEmpty());
+        assertEquals(user.getId(), inTransaction(() -> userRepository.findByEmail(newEmail)).orElseThrow().getId());
+    }
+
+    @DisplayName("Удаление через JDBC должно вытеснить пользователя и из кэша по id, и из поиска по email.")
+    @Test
+    void jdbcDelete_shouldEvictUser() {
+        inTransaction(() -> userRepository.findByEmail(user.getEmail()));
+
+        inTransaction(() -> userJdbcRepository.deleteByIds(List.of(user.getId())));
+
+        assertFalse(secondLevelCache.contains(user.getId()));
+        assertTrue(inTransaction(() -> userRepository.findById(user.getId())).isEmpty());
+        assertTrue(inTransaction(() -> userRepository.findByEmail(user.getEmail())).isEmpty());
+    }
+
+    @DisplayName("Должны действовать размер кэша планов, выравнивание IN-списков и кэш prepared statements pgjdbc.")
+    @Test
+    void queryPlanAndStatementCaches_shouldBeConfigured() {
+        Map<String, Object> properties = entityManagerFactory.getProperties();
+        assertEquals("256", String.valueOf(properties.get("hibernate.query.plan_cache_max_size")));
+        assertEquals("true", String.valueOf(properties.get("hibernate.query.in_clause_parameter_padding")));
+        assertEquals("1024", dataSource.getDataSourceProperties().getProperty("preparedStatementCacheQueries"));
+        assertEquals("16", dataSource.getDataSourceProperties().getProperty("preparedStatementCacheSizeMiB"));
+    }
+}
@@ -0,0 +1,60 @@
+package aston.user_service.cache;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import user_service.cache.UserSecondLevelCache;
+import user_service.model.User;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class UserSecondLevelCacheTest {
+
+    private Cache cache;
+    private UserSecondLevelCache secondLevelCache;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(Cache.class);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        secondLevelCache = new UserSecondLevelCache(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @DisplayName("Вне транзакции должен вытеснить пользователя сразу и один раз.")
+    @Test
+    void evict_shouldEvictImmediately_withoutTransaction() {
+        secondLevelCache.evict(1L);
+
+        verify(cache).evict(User.class, 1L);
+    }
+
+    @DisplayName("В транзакции должен вытеснить сразу и еще раз после ее завершения.")
+    @Test
+    void evictAll_shouldEvictAgainAfterCompletion_inTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        secondLevelCache.evictAll(List.of(1L, 2L));
+        verify(cache).evict(User.class, 1L);
+        verify(cache).evict(User.class, 2L);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(cache, times(2)).evict(User.class, 1L);
+        verify(cache, times(2)).evict(User.class, 2L);
+    }
+}
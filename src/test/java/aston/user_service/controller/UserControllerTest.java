@@ -10,21 +10,50 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import user_service.controller.UserController;
+import user_service.dto.UserBatchCreateRequest;
+import user_service.dto.UserBatchCreateResponse;
 import user_service.dto.UserCreateRequest;
+import user_service.dto.UserImportResponse;
+import user_service.dto.UserLookupRequest;
+import user_service.dto.UserLookupResponse;
+import user_service.dto.UserPage;
 import user_service.dto.UserPatchRequest;
 import user_service.dto.UserResponse;
+import user_service.dto.UserSearchRequest;
+import user_service.exception.GlobalExceptionHandler;
+import user_service.exception.NotFoundException;
 import user_service.hateoas.UserModelAssembler;
 import user_service.service.UserService;
+import user_service.service.UserTransferService;
+import user_service.service.VersionPrecondition;
+import user_service.web.UserMediaTypes;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.dataformat.cbor.CBORMapper;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,6 +66,9 @@ class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserTransferService userTransferService;
+
     @Spy
     private UserModelAssembler assembler = new UserModelAssembler();
 
@@ -51,7 +83,7 @@ class UserControllerTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
-        response = new UserResponse(1L, "Ivan", "ivan@example.com", 25, LocalDateTime.now());
+        response = new UserResponse(1L, "Ivan", "ivan@example.com", 25, LocalDateTime.now(), LocalDateTime.now(), 0L);
     }
 
     @Test
@@ -74,6 +106,27 @@ class UserControllerTest {
         verify(userService).create(any(UserCreateRequest.class));
     }
 
+    @Test
+    @DisplayName("POST /api/users/batch - Пакетное создание")
+    void createBatch_ShouldReturnCreatedAndErrors() throws Exception {
+        UserCreateRequest request = new UserCreateRequest();
+        request.setName("Ivan");
+        request.setEmail("ivan@example.com");
+        request.setAge(25);
+        UserBatchCreateRequest batch = new UserBatchCreateRequest();
+        batch.setUsers(List.of(request, request));
+
+        when(userService.createBatch(anyList())).thenReturn(new UserBatchCreateResponse(List.of(response),
+                List.of(new UserBatchCreateResponse.ItemError(1, "ivan@example.com", "duplicate"))));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created[0].id").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1));
+    }
+
     @Test
     @DisplayName("GET /api/users/{id} - Получение по ID")
     void getById_ShouldReturnUser() throws Exception {
@@ -82,11 +135,48 @@ class UserControllerTest {
         mockMvc.perform(get("/api/users/{id}", 1L))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L))
-                .andExpect(jsonPath("$.links[?(@.rel == 'self')].href").exists());
+                .andExpect(jsonPath("$.links[?(@.rel == 'self')].href").exists())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-hal\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
 
         verify(userService).getById(1L);
     }
 
+    @Test
+    @DisplayName("GET /api/users/{id} - 304 без тела, если ETag совпадает")
+    void getById_WithMatchingETag_ShouldReturn304() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"0-hal\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-hal\""))
+                .andExpect(content().string(""));
+
+        verify(assembler, never()).toModel(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} (CBOR) - ETag HAL-представления той же версии не дает 304")
+    void getById_CborWithHalETag_ShouldReturnBody() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0-hal\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-cbor\""));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - 200, если ETag устарел")
+    void getById_WithStaleETag_ShouldReturnUser() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+    }
+
     @Test
     @DisplayName("GET /api/users/email - Получение по Email")
     void getByEmail_ShouldReturnUser() throws Exception {
@@ -100,19 +190,235 @@ class UserControllerTest {
         verify(userService).getByEmail("ivan@example.com");
     }
 
+    @Test
+    @DisplayName("HEAD /api/users/email - 200, если email занят, 404, если свободен, без тела")
+    void checkEmail_ShouldReflectAvailability() throws Exception {
+        when(userService.emailExists("ivan@example.com")).thenReturn(true);
+        when(userService.emailExists("free@example.com")).thenReturn(false);
+
+        mockMvc.perform(head("/api/users/email").param("email", "ivan@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mockMvc.perform(head("/api/users/email").param("email", "free@example.com"))
+                .andExpect(status().isNotFound());
+
+        verify(userService, never()).getByEmail(any());
+    }
+
     @Test
     @DisplayName("GET /api/users - Получение всех")
     void getAll_ShouldReturnCollection() throws Exception {
-        when(userService.getAll()).thenReturn(List.of(response));
+        when(userService.getPage(null, null)).thenReturn(new UserPage(List.of(response), null));
 
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content").isArray())
                 .andExpect(jsonPath("$.content.length()").value(1))
                 .andExpect(jsonPath("$.content[0].id").value(1L))
-                .andExpect(jsonPath("$.content[0].email").value("ivan@example.com"));
+                .andExpect(jsonPath("$.content[0].email").value("ivan@example.com"))
+                .andExpect(jsonPath("$.links[?(@.rel == 'next')]").isEmpty());
+
+        verify(userService).getPage(null, null);
+    }
+
+    @Test
+    @DisplayName("GET /api/users - Ссылка на следующую страницу")
+    void getAll_ShouldReturnNextLink() throws Exception {
+        when(userService.getPage(null, 1)).thenReturn(new UserPage(List.of(response), "MQ"));
+
+        mockMvc.perform(get("/api/users").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links[?(@.rel == 'next')].href", hasItem(containsString("cursor=MQ"))));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - Поиск со ссылкой на следующую страницу")
+    void search_ShouldReturnResultsWithNextLink() throws Exception {
+        when(userService.search(any(UserSearchRequest.class))).thenReturn(new UserPage(List.of(response), "NEXT"));
+
+        mockMvc.perform(get("/api/users/search?email=ivan@&minAge=18&sort=createdAt,desc&cursor=PREV"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email").value("ivan@example.com"))
+                .andExpect(jsonPath("$.links[?(@.rel == 'next')].href", hasItem(allOf(
+                        containsString("cursor=NEXT"), containsString("minAge=18"), not(containsString("PREV"))))));
+
+        verify(userService).search(argThat(r -> "ivan@".equals(r.getEmail())
+                && r.getMinAge() == 18 && "createdAt,desc".equals(r.getSort())));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - 400 при неизвестном поле сортировки")
+    void search_WithUnknownSort_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/users/search").param("sort", "email"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("GET /api/users (NDJSON) - Потоковая выгрузка")
+    void stream_ShouldWriteNdjson() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userService).streamAll(any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n"));
+        verify(userService, never()).getPage(any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export?format=csv - Файл users.csv.gz")
+    void export_ShouldStreamGzipAttachment() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(new byte[]{0x1f, (byte) 0x8b});
+            return null;
+        }).when(userTransferService).export(eq(UserTransferService.Format.CSV), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/users/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv.gz\""))
+                .andExpect(content().bytes(new byte[]{0x1f, (byte) 0x8b}));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export?format=xml - 400")
+    void export_UnknownFormat_ShouldReturn400() throws Exception {
+        MockMvc withAdvice = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new GlobalExceptionHandler(false))
+                .build();
+
+        withAdvice.perform(get("/api/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("BAD_REQUEST"));
+
+        verifyNoInteractions(userTransferService);
+    }
+
+    @Test
+    @DisplayName("POST /api/users/import - Формат загрузки по Content-Type")
+    void import_ShouldDispatchByContentType() throws Exception {
+        UserImportResponse imported = new UserImportResponse(1, 1,
+                List.of(new UserImportResponse.LineError(2, "bad", "email must be valid")));
+        when(userTransferService.importCsv(any(InputStream.class))).thenReturn(imported);
+        when(userTransferService.importNdjson(any(InputStream.class))).thenReturn(new UserImportResponse(0, 0, List.of()));
+
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content("name,email,age\nIvan,ivan@example.com,25\nPetr,bad,30\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("email must be valid"));
+        mockMvc.perform(post("/api/users/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(0));
+
+        verify(userTransferService).importCsv(any(InputStream.class));
+        verify(userTransferService).importNdjson(any(InputStream.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} (CBOR) - Бинарное представление без ссылок")
+    void getById_Cbor_ShouldReturnBinaryBody() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        MvcResult result = mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn();
 
-        verify(userService).getAll();
+        JsonNode body = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(1L, body.get("id").asLong());
+        assertEquals("ivan@example.com", body.get("email").asString());
+        assertNull(body.get("_links"));
+        verifyNoInteractions(assembler);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} (internal JSON) - JSON без HAL-ссылок")
+    void getById_InternalJson_ShouldOmitLinks() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/1").accept(UserMediaTypes.INTERNAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(UserMediaTypes.INTERNAL_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-json\""))
+                .andExpect(jsonPath("$.email").value("ivan@example.com"))
+                .andExpect(jsonPath("$._links").doesNotExist())
+                .andExpect(jsonPath("$.links").doesNotExist());
+
+        verifyNoInteractions(assembler);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - Без Accept по-прежнему отдается HAL")
+    void getById_DefaultAccept_ShouldStayHal() throws Exception {
+        when(userService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links[?(@.rel == 'self')].href").exists());
+    }
+
+    @Test
+    @DisplayName("GET /api/users (CBOR) - Страница с курсором без ссылок")
+    void getAll_Cbor_ShouldReturnPage() throws Exception {
+        when(userService.getPage(null, 10)).thenReturn(new UserPage(List.of(response), "next"));
+
+        MvcResult result = mockMvc.perform(get("/api/users").param("size", "10")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode body = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals("next", body.get("nextCursor").asString());
+        assertEquals(1, body.get("content").size());
+        verifyNoInteractions(assembler);
+    }
+
+    @Test
+    @DisplayName("POST /api/users/lookup - Найденные пользователи и ненайденные ключи")
+    void lookup_ShouldReturnFoundAndMissing() throws Exception {
+        when(userService.lookup(any(UserLookupRequest.class)))
+                .thenReturn(new UserLookupResponse(List.of(response), List.of(7L), List.of()));
+
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,7]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].id").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(7));
+
+        verifyNoInteractions(assembler);
+    }
+
+    @Test
+    @DisplayName("POST /api/users/lookup - 400 при пустом запросе")
+    void lookup_Empty_ShouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[],\"emails\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
     }
 
     @Test
@@ -121,8 +427,8 @@ class UserControllerTest {
         UserPatchRequest patch = new UserPatchRequest();
         patch.setAge(30);
 
-        UserResponse updatedResponse = new UserResponse(1L, "Ivan", "ivan@example.com", 30, LocalDateTime.now());
-        when(userService.patch(eq(1L), any(UserPatchRequest.class))).thenReturn(updatedResponse);
+        UserResponse updatedResponse = new UserResponse(1L, "Ivan", "ivan@example.com", 30, LocalDateTime.now(), LocalDateTime.now(), 0L);
+        when(userService.patch(eq(1L), any(UserPatchRequest.class), isNull())).thenReturn(updatedResponse);
 
         mockMvc.perform(patch("/api/users/{id}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -130,17 +436,126 @@ class UserControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.age").value(30));
 
-        verify(userService).patch(eq(1L), any(UserPatchRequest.class));
+        verify(userService).patch(eq(1L), any(UserPatchRequest.class), isNull());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/users/{id} - If-Match передается как ожидаемая версия")
+    void patch_WithIfMatch_ShouldPassExpectedVersion() throws Exception {
+        UserResponse updatedResponse = new UserResponse(1L, "Ivan", "ivan@example.com", 30, LocalDateTime.now(), LocalDateTime.now(), 4L);
+        when(userService.patch(eq(1L), any(UserPatchRequest.class), eq(VersionPrecondition.anyOf(Set.of(3L)))))
+                .thenReturn(updatedResponse);
+
+        mockMvc.perform(patch("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":30}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-hal\""));
+    }
+
+    @Test
+    @DisplayName("PATCH /api/users/{id} - If-Match со списком ETag передает все версии, weak ETag пропускаются")
+    void patch_WithIfMatchList_ShouldPassAllVersions() throws Exception {
+        UserResponse updatedResponse = new UserResponse(1L, "Ivan", "ivan@example.com", 30, LocalDateTime.now(), LocalDateTime.now(), 5L);
+        when(userService.patch(eq(1L), any(UserPatchRequest.class), eq(VersionPrecondition.anyOf(Set.of(3L, 4L)))))
+                .thenReturn(updatedResponse);
+
+        mockMvc.perform(patch("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3-hal\", W/\"7\", \"4-cbor\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":30}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5-hal\""));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users/{id} - If-Match: * требует существования пользователя")
+    void delete_WithIfMatchAny_ShouldRequireExistence() throws Exception {
+        mockMvc.perform(delete("/api/users/{id}", 1L).header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isNoContent());
+
+        verify(userService).delete(1L, VersionPrecondition.EXISTS);
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - 412 при weak ETag в If-Match")
+    void update_WithWeakIfMatch_ShouldReturn412() throws Exception {
+        MockMvc withAdvice = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new GlobalExceptionHandler(false))
+                .build();
+
+        withAdvice.perform(put("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ivan\",\"email\":\"ivan@example.com\",\"age\":25}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("PRECONDITION_FAILED"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - 404 в виде problem+json при app.errors.problem-details")
+    void getById_NotFound_ShouldReturnProblemJson() throws Exception {
+        MockMvc withAdvice = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new GlobalExceptionHandler(true))
+                .build();
+        when(userService.getById(99L)).thenThrow(NotFoundException.user("id", 99L));
+
+        withAdvice.perform(get("/api/users/{id}", 99L).accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.title").value("Not Found"))
+                .andExpect(jsonPath("$.detail").value("User not found with id: 99"))
+                .andExpect(jsonPath("$.instance").doesNotExist());
     }
 
     @Test
     @DisplayName("DELETE /api/users/{id} - Удаление")
     void delete_ShouldReturn204() throws Exception {
-        doNothing().when(userService).delete(1L);
+        doNothing().when(userService).delete(1L, null);
 
         mockMvc.perform(delete("/api/users/{id}", 1L))
                 .andExpect(status().isNoContent());
 
-        verify(userService).delete(1L);
+        verify(userService).delete(1L, null);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users - Массовое удаление по списку id")
+    void deleteBulk_ByIds_ShouldReturnDeletedCount() throws Exception {
+        when(userService.deleteByIds(List.of(1L, 2L, 3L))).thenReturn(2L);
+
+        mockMvc.perform(delete("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,2,3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users - Массовое удаление по дате регистрации")
+    void deleteBulk_ByCreatedBefore_ShouldReturnDeletedCount() throws Exception {
+        LocalDateTime before = LocalDateTime.of(2020, 1, 1, 0, 0);
+        when(userService.deleteCreatedBefore(before)).thenReturn(1500L);
+
+        mockMvc.perform(delete("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"createdBefore\":\"2020-01-01T00:00:00\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1500));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users - 400, если заданы и id, и фильтр")
+    void deleteBulk_WithBothCriteria_ShouldReturn400() throws Exception {
+        mockMvc.perform(delete("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1],\"createdBefore\":\"2020-01-01T00:00:00\"}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
     }
 }
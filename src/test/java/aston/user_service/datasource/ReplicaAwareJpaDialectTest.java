@@ -0,0 +1,84 @@
+package aston.user_service.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import org.hibernate.FlushMode;
+import org.hibernate.cfg.CacheSettings;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import user_service.datasource.ReadYourWrites;
+import user_service.datasource.ReplicaAwareJpaDialect;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+class ReplicaAwareJpaDialectTest {
+
+    private ReplicaAwareJpaDialect dialect;
+    private EntityManager entityManager;
+    private SessionImplementor session;
+    private ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void setUp() {
+        dialect = new ReplicaAwareJpaDialect();
+        dialect.setPrepareConnection(false);
+        session = mock(SessionImplementor.class);
+        entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(entityManager.getTransaction()).thenReturn(mock(EntityTransaction.class));
+        when(session.getHibernateFlushMode()).thenReturn(FlushMode.AUTO);
+        when(entityManager.getCacheStoreMode()).thenReturn(CacheStoreMode.USE);
+        when(entityManager.isOpen()).thenReturn(true);
+        readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.unpin();
+    }
+
+    @DisplayName("Read-only транзакция на реплике должна только читать кэш второго уровня и вернуть режим после завершения.")
+    @Test
+    void readOnlyOnReplica_shouldNotPopulateSecondLevelCache() throws Exception {
+        Object transactionData = dialect.beginTransaction(entityManager, definition(true));
+
+        verify(entityManager).setProperty(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+
+        dialect.cleanupTransaction(transactionData);
+
+        verify(entityManager).setProperty(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.USE);
+        verify(session).setHibernateFlushMode(FlushMode.AUTO);
+    }
+
+    @DisplayName("Read-only транзакция потока, закрепленного за primary, должна заполнять кэш второго уровня.")
+    @Test
+    void readOnlyOnPrimary_shouldPopulateSecondLevelCache() throws Exception {
+        readYourWrites.recordWrite("client");
+        readYourWrites.pinIfRecentWrite("client");
+
+        dialect.cleanupTransaction(dialect.beginTransaction(entityManager, definition(true)));
+
+        verify(entityManager, never()).setProperty(eq(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE), any());
+    }
+
+    @DisplayName("Транзакция на запись должна заполнять кэш второго уровня.")
+    @Test
+    void readWrite_shouldPopulateSecondLevelCache() throws Exception {
+        dialect.cleanupTransaction(dialect.beginTransaction(entityManager, definition(false)));
+
+        verify(entityManager, never()).setProperty(eq(CacheSettings.JAKARTA_SHARED_CACHE_STORE_MODE), any());
+    }
+
+    private static DefaultTransactionDefinition definition(boolean readOnly) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(readOnly);
+        return definition;
+    }
+}
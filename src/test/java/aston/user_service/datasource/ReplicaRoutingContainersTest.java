@@ -0,0 +1,90 @@
+package aston.user_service.datasource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import user_service.UserServiceApplication;
+import user_service.web.ClientIdentity;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Две независимые базы вместо настоящей репликации: пользователь, созданный
+ * на primary, на "реплике" отсутствует, поэтому по ответу чтения видно,
+ * куда оно было направлено. Кэш второго уровня Hibernate выключен: он отдал бы
+ * только что созданного пользователя без обращения к какой-либо базе.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(classes = UserServiceApplication.class,
+        properties = {
+                "spring.cloud.config.enabled=false",
+                "eureka.client.enabled=false",
+                "app.kafka.topic=users",
+                "app.datasource.read-your-writes-window=1m",
+                "app.client-identity.trusted-proxies=127.0.0.1",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+        })
+@AutoConfigureMockMvc
+class ReplicaRoutingContainersTest {
+
+    @Container
+    static PostgreSQLContainer primary = new PostgreSQLContainer("postgres:17-alpine");
+
+    @Container
+    static PostgreSQLContainer replica = new PostgreSQLContainer("postgres:17-alpine");
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("app.datasource.replica.jdbc-url", replica::getJdbcUrl);
+        registry.add("app.datasource.replica.username", replica::getUsername);
+        registry.add("app.datasource.replica.password", replica::getPassword);
+    }
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @DisplayName("Чтение другого клиента должно идти на реплику, чтение писавшего клиента — на primary.")
+    @Test
+    void readsShouldGoToReplicaExceptWithinReadYourWritesWindow() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .header(ClientIdentity.HEADER, "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ivan\",\"email\":\"ivan@example.com\",\"age\":25}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/users/email").param("email", "ivan@example.com")
+                        .header(ClientIdentity.HEADER, "reader"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/users/email").param("email", "ivan@example.com")
+                        .header(ClientIdentity.HEADER, "writer"))
+                .andExpect(status().isOk());
+    }
+}
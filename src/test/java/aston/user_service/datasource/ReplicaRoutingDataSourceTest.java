@@ -0,0 +1,94 @@
+package aston.user_service.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import user_service.datasource.ReadYourWrites;
+import user_service.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private LazyConnectionDataSourceProxy dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(primaryConnection.createStatement()).thenReturn(mock(Statement.class));
+        when(replicaConnection.createStatement()).thenReturn(mock(Statement.class));
+
+        dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    @AfterEach
+    void tearDown() {
+        new ReadYourWrites(Duration.ZERO).unpin();
+    }
+
+    @DisplayName("Read-only соединение должно идти на реплику, обычное — на primary.")
+    @Test
+    void shouldRouteReadOnlyConnectionsToReplica() throws Exception {
+        try (Connection readOnly = dataSource.getConnection()) {
+            readOnly.setReadOnly(true);
+            readOnly.createStatement();
+        }
+        try (Connection readWrite = dataSource.getConnection()) {
+            readWrite.createStatement();
+        }
+
+        verify(replica, times(1)).getConnection();
+        verify(primary, times(1)).getConnection();
+    }
+
+    @DisplayName("После записи клиента его чтения в пределах окна должны идти на primary.")
+    @Test
+    void shouldRouteToPrimary_whenClientWroteRecently() throws Exception {
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        readYourWrites.recordWrite("client-1");
+
+        readYourWrites.pinIfRecentWrite("client-2");
+        assertFalse(ReadYourWrites.isPinned());
+
+        readYourWrites.pinIfRecentWrite("client-1");
+        assertTrue(ReadYourWrites.isPinned());
+        try (Connection readOnly = dataSource.getConnection()) {
+            readOnly.setReadOnly(true);
+            readOnly.createStatement();
+        }
+
+        verify(primary, times(1)).getConnection();
+        verifyNoInteractions(replica);
+    }
+
+    @DisplayName("Нулевое окно должно отключать read-your-writes.")
+    @Test
+    void shouldNotPin_whenWindowIsZero() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ZERO);
+        readYourWrites.recordWrite("client-1");
+
+        readYourWrites.pinIfRecentWrite("client-1");
+
+        assertFalse(ReadYourWrites.isPinned());
+    }
+}
@@ -0,0 +1,89 @@
+package aston.user_service.exception;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import user_service.exception.BadRequestException;
+import user_service.exception.DuplicateEmailException;
+import user_service.exception.GlobalExceptionHandler;
+import user_service.exception.NotFoundException;
+import user_service.exception.TooManyRequestsException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler legacy = new GlobalExceptionHandler(false);
+    private final GlobalExceptionHandler problem = new GlobalExceptionHandler(true);
+
+    @DisplayName("Доменные исключения не должны заполнять стек.")
+    @Test
+    void domainExceptions_shouldBeStackless() {
+        assertEquals(0, NotFoundException.user("id", 1L).getStackTrace().length);
+        assertEquals(0, new BadRequestException("bad").getStackTrace().length);
+        assertEquals(0, new TooManyRequestsException("slow down", Duration.ofSeconds(1)).getStackTrace().length);
+    }
+
+    @DisplayName("Сообщение NotFoundException должно собираться лениво в прежнем формате.")
+    @Test
+    void notFound_shouldBuildMessageLazily() {
+        assertEquals("User not found with id: 42", NotFoundException.user("id", 42L).getMessage());
+        assertEquals("User not found with email: a@b.c", NotFoundException.user("email", "a@b.c").getMessage());
+    }
+
+    @DisplayName("По умолчанию тело ошибки — {error, message}.")
+    @Test
+    void handleNotFound_shouldReturnLegacyBody_byDefault() {
+        ResponseEntity<?> response = legacy.handleNotFound(NotFoundException.user("id", 42L));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(Map.of("error", "NOT_FOUND", "message", "User not found with id: 42"), response.getBody());
+    }
+
+    @DisplayName("В режиме problem+json 404 должен называть в detail ключ, по которому пользователь не найден.")
+    @Test
+    void handleNotFound_shouldReturnPreserializedProblemWithKey() {
+        ResponseEntity<?> byId = problem.handleNotFound(NotFoundException.user("id", 1L));
+        ResponseEntity<?> byEmail = problem.handleNotFound(NotFoundException.user("email", "a\"b@example.com"));
+
+        assertEquals(HttpStatus.NOT_FOUND, byId.getStatusCode());
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, byId.getHeaders().getContentType());
+        assertEquals("{\"type\":\"about:blank\",\"title\":\"Not Found\",\"status\":404,\"detail\":\"User not found with id: 1\"}",
+                new String((byte[]) byId.getBody(), StandardCharsets.UTF_8));
+        assertEquals("{\"type\":\"about:blank\",\"title\":\"Not Found\",\"status\":404,"
+                        + "\"detail\":\"User not found with email: a\\\"b@example.com\"}",
+                new String((byte[]) byEmail.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @DisplayName("В режиме problem+json 400 с переменным текстом должен отдавать ProblemDetail с detail.")
+    @Test
+    void handleBadRequest_shouldReturnProblemDetail() {
+        ResponseEntity<?> response = problem.handleBadRequest(new BadRequestException("Invalid cursor: x"));
+        ResponseEntity<?> duplicate = problem.handleDuplicateEmail(new DuplicateEmailException("User with email already exists: a@b.c"));
+
+        ProblemDetail body = (ProblemDetail) response.getBody();
+        assertEquals(400, body.getStatus());
+        assertEquals("Invalid cursor: x", body.getDetail());
+        assertEquals(HttpStatus.BAD_REQUEST, duplicate.getStatusCode());
+        assertTrue(new String((byte[]) duplicate.getBody(), StandardCharsets.UTF_8)
+                .endsWith("\"detail\":\"User with email already exists: a@b.c\"}"));
+    }
+
+    @DisplayName("В режиме problem+json 429 должен сохранять Retry-After.")
+    @Test
+    void handleTooManyRequests_shouldKeepRetryAfter() {
+        ResponseEntity<?> response = problem.handleTooManyRequests(new TooManyRequestsException("slow down", Duration.ofMillis(1500)));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, response.getHeaders().getContentType());
+    }
+}
@@ -0,0 +1,84 @@
+package aston.user_service.hateoas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import user_service.dto.UserResponse;
+import user_service.hateoas.UserModelAssembler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserModelAssemblerTest {
+
+    private final UserModelAssembler legacy = new UserModelAssembler(false);
+    private final UserModelAssembler precomputed = new UserModelAssembler(true);
+
+    private List<UserResponse> users;
+
+    @BeforeEach
+    void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setServerName("users.example.com");
+        request.setServerPort(8443);
+        request.setScheme("https");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        users = List.of(
+                new UserResponse(1L, "Ivan", "ivan@example.com", 25, createdAt, createdAt, 0L),
+                new UserResponse(42L, "Petr", "petr+tag@example.com", 30, createdAt, createdAt, 0L),
+                new UserResponse(7L, "Anna", "anna smith@example.com", 41, createdAt, createdAt, 0L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @DisplayName("Ссылки по шаблонам должны совпадать со ссылками через methodOn.")
+    @Test
+    void toModel_shouldMatchMethodOnLinks() {
+        for (UserResponse user : users) {
+            assertEquals(rendered(legacy.toModel(user)), rendered(precomputed.toModel(user)));
+        }
+    }
+
+    @DisplayName("Коллекция по шаблонам должна совпадать с коллекцией через methodOn.")
+    @Test
+    void toCollectionModel_shouldMatchMethodOnLinks() {
+        List<EntityModel<UserResponse>> expected = List.copyOf(legacy.toCollectionModel(users).getContent());
+        List<EntityModel<UserResponse>> actual = List.copyOf(precomputed.toCollectionModel(users).getContent());
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i).getContent(), actual.get(i).getContent());
+            assertEquals(rendered(expected.get(i)), rendered(actual.get(i)));
+        }
+    }
+
+    @DisplayName("Без контекста запроса ссылки тоже должны совпадать.")
+    @Test
+    void toModel_shouldMatchWithoutRequest() {
+        RequestContextHolder.resetRequestAttributes();
+
+        assertEquals(rendered(legacy.toModel(users.getFirst())), rendered(precomputed.toModel(users.getFirst())));
+    }
+
+    /**
+     * То, что попадает в HAL-ответ: rel, href и признак шаблона.
+     */
+    private static List<String> rendered(EntityModel<UserResponse> model) {
+        return model.getLinks().stream()
+                .map(link -> link.getRel().value() + " " + link.getHref() + " " + link.isTemplated())
+                .toList();
+    }
+}
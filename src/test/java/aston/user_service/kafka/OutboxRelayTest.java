@@ -0,0 +1,280 @@
+package aston.user_service.kafka;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.kafka.OutboxRelay;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventOutbox;
+import user_service.kafka.UserEventProducer;
+import user_service.kafka.UserSnapshotProducer;
+import user_service.dto.UserResponse;
+import user_service.mapper.UserMapper;
+import user_service.model.User;
+import user_service.repository.UserJdbcRepository;
+import user_service.model.OutboxEvent;
+import user_service.repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private UserEventProducer userEventProducer;
+    @Mock
+    private UserSnapshotProducer userSnapshotProducer;
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UserMapper userMapper;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository,
+                new UserEventOutbox(outboxEventRepository, jsonMapper),
+                userEventProducer,
+                userSnapshotProducer,
+                userJdbcRepository,
+                userMapper,
+                new TransactionTemplate(transactionManager),
+                100, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofMinutes(1), 1_000, 1_000);
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(true);
+    }
+
+    @DisplayName("Должен удалить доставленные события из outbox.")
+    @Test
+    void poll_shouldDeleteDeliveredEvents() {
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        OutboxEvent deleted = outboxEvent(2L, UserEvent.Operation.DELETE, 20L, "b@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(created, deleted));
+        when(userEventProducer.sendAll(List.of(
+                new UserEvent(UserEvent.Operation.CREATE, 10L, "a@example.com", 0L, Map.of()),
+                new UserEvent(UserEvent.Operation.DELETE, 20L, "b@example.com", 0L, Map.of())),
+                List.of(created, deleted)))
+                .thenReturn(List.of(CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        assertEquals(0, created.getAttempts());
+    }
+
+    @DisplayName("Должен отложить недоставленное событие и все последующие события того же ключа.")
+    @Test
+    void poll_shouldRescheduleFailedKey() {
+        OutboxEvent first = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        OutboxEvent second = outboxEvent(2L, UserEvent.Operation.DELETE, 10L, "a@example.com");
+        OutboxEvent other = outboxEvent(3L, UserEvent.Operation.CREATE, 20L, "b@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(first, second, other));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenReturn(List.of(
+                CompletableFuture.failedFuture(new IllegalStateException("broker down")),
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(3L));
+        assertEquals(1, first.getAttempts());
+        assertEquals(1, second.getAttempts());
+        assertTrue(first.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        verify(outboxEventRepository).reschedule(1L, 1, first.getNextAttemptAt());
+        verify(outboxEventRepository).reschedule(2L, 1, second.getNextAttemptAt());
+    }
+
+    @DisplayName("Должен ждать подтверждений вне транзакции, выбравшей пачку.")
+    @Test
+    void poll_shouldAwaitAcksOutsideLockingTransaction() {
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(created));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenReturn(List.of(CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        InOrder order = inOrder(transactionManager, userEventProducer, outboxEventRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(outboxEventRepository).lockReadyBatch(any(), eq(100));
+        order.verify(transactionManager).commit(any());
+        order.verify(userEventProducer).sendAll(anyList(), anyList());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @DisplayName("Должен сдвинуть next_attempt_at взятой пачки, чтобы другие экземпляры ее не брали.")
+    @Test
+    void poll_shouldLeaseClaimedEvents() {
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        LocalDateTime before = LocalDateTime.now();
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenAnswer(inv -> List.of(created));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenAnswer(inv -> {
+            assertTrue(created.getNextAttemptAt().isAfter(before.plusSeconds(1)));
+            return List.of(CompletableFuture.completedFuture(null));
+        });
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @DisplayName("Не должен удалять и откладывать строки, если аренда истекла до подтверждений.")
+    @Test
+    void poll_shouldNotTouchRows_whenLeaseExpired() {
+        OutboxRelay relay = new OutboxRelay(outboxEventRepository,
+                new UserEventOutbox(outboxEventRepository, jsonMapper),
+                userEventProducer,
+                userSnapshotProducer,
+                userJdbcRepository,
+                userMapper,
+                new TransactionTemplate(transactionManager),
+                100, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofMinutes(1), 0, 50);
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        OutboxEvent failed = outboxEvent(2L, UserEvent.Operation.CREATE, 20L, "b@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(created, failed));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenAnswer(inv -> {
+            Thread.sleep(100);
+            return List.of(CompletableFuture.completedFuture(null),
+                    CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        });
+
+        relay.poll();
+
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+        verify(outboxEventRepository, never()).reschedule(anyLong(), anyInt(), any());
+    }
+
+    @DisplayName("Без send-timeout должен ждать подтверждение до delivery.timeout.ms, а не откладывать еще идущую отправку.")
+    @Test
+    void poll_shouldAwaitUpToDeliveryTimeout_byDefault() {
+        OutboxRelay relay = new OutboxRelay(outboxEventRepository,
+                new UserEventOutbox(outboxEventRepository, jsonMapper),
+                userEventProducer,
+                userSnapshotProducer,
+                userJdbcRepository,
+                userMapper,
+                new TransactionTemplate(transactionManager),
+                100, null, Duration.ofSeconds(1), Duration.ofMinutes(1), 1_000, 5_000);
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(created));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenReturn(List.of(CompletableFuture.supplyAsync(
+                () -> null, CompletableFuture.delayedExecutor(1500, TimeUnit.MILLISECONDS))));
+
+        relay.poll();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxEventRepository, never()).reschedule(anyLong(), anyInt(), any());
+    }
+
+    @DisplayName("Должен перенести нечитаемое событие в dead letter и доставить остальные.")
+    @Test
+    void poll_shouldMoveUnreadableEventToDeadLetter() {
+        OutboxEvent broken = OutboxEvent.builder()
+                .id(1L)
+                .eventKey("10")
+                .payload("{not json")
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+        OutboxEvent created = outboxEvent(2L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(broken, created));
+        when(userEventProducer.sendAll(List.of(
+                new UserEvent(UserEvent.Operation.CREATE, 10L, "a@example.com", 0L, Map.of())),
+                List.of(created)))
+                .thenReturn(List.of(CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository).moveToDeadLetter(eq(1L), anyString(), any());
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    @DisplayName("Должен отправить текущее состояние пользователей пачки и tombstone для удаленных.")
+    @Test
+    void poll_shouldPublishSnapshotsForBatchUsers() {
+        OutboxEvent created = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        OutboxEvent updated = outboxEvent(2L, UserEvent.Operation.UPDATE, 10L, "a@example.com");
+        OutboxEvent deleted = outboxEvent(3L, UserEvent.Operation.DELETE, 20L, "b@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(created, updated, deleted));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenReturn(List.of(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.completedFuture(null)));
+        LocalDateTime now = LocalDateTime.now();
+        User current = new User(10L, "a", "a@example.com", 30, now, now, 1L);
+        UserResponse snapshot = new UserResponse(10L, "a", "a@example.com", 30, now, now, 1L);
+        when(userJdbcRepository.findByIds(Set.of(10L, 20L))).thenReturn(List.of(current));
+        when(userMapper.toResponse(current)).thenReturn(snapshot);
+        when(userSnapshotProducer.sendAll(Set.of(10L, 20L), Map.of(10L, snapshot))).thenReturn(Map.of(
+                10L, CompletableFuture.completedFuture(null),
+                20L, CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        verify(userSnapshotProducer).sendAll(Set.of(10L, 20L), Map.of(10L, snapshot));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+    }
+
+    @DisplayName("Должен отложить событие, если снимок его пользователя не доставлен.")
+    @Test
+    void poll_shouldReschedule_whenSnapshotFails() {
+        OutboxEvent first = outboxEvent(1L, UserEvent.Operation.CREATE, 10L, "a@example.com");
+        OutboxEvent other = outboxEvent(2L, UserEvent.Operation.CREATE, 20L, "b@example.com");
+        when(outboxEventRepository.lockReadyBatch(any(), eq(100))).thenReturn(List.of(first, other));
+        when(userEventProducer.sendAll(anyList(), anyList())).thenReturn(List.of(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.completedFuture(null)));
+        when(userSnapshotProducer.sendAll(anyCollection(), anyMap())).thenReturn(Map.of(
+                10L, CompletableFuture.failedFuture(new IllegalStateException("broker down")),
+                20L, CompletableFuture.completedFuture(null)));
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+        assertEquals(1, first.getAttempts());
+        verify(outboxEventRepository).reschedule(eq(1L), eq(1), any());
+    }
+
+    @DisplayName("Не должен ничего отправлять, если релей работает на другом экземпляре.")
+    @Test
+    void poll_shouldSkip_whenLockIsHeldElsewhere() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(false);
+
+        outboxRelay.poll();
+
+        verify(outboxEventRepository, never()).lockReadyBatch(any(), anyInt());
+        verifyNoInteractions(userEventProducer);
+    }
+
+    private OutboxEvent outboxEvent(Long id, UserEvent.Operation operation, Long userId, String email) {
+        UserEvent event = new UserEvent(operation, userId, email, 0L, Map.of());
+        return OutboxEvent.builder()
+                .id(id)
+                .eventKey(event.key())
+                .payload(jsonMapper.writeValueAsString(event))
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package aston.user_service.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import user_service.cache.EmailExistenceFilter;
+import user_service.cache.UserCache;
+import user_service.cache.UserSecondLevelCache;
+import user_service.kafka.NoCommitContainerPostProcessor;
+import user_service.kafka.UserCacheCoherenceListener;
+import user_service.kafka.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheCoherenceListenerTest {
+
+    @Mock
+    private UserCache userCache;
+    @Mock
+    private EmailExistenceFilter emailFilter;
+    @Mock
+    private UserSecondLevelCache secondLevelCache;
+
+    @InjectMocks
+    private UserCacheCoherenceListener listener;
+
+    @DisplayName("Должен применить UPDATE к кэшу по id и версии.")
+    @Test
+    void onEvent_shouldApplyUpdate() {
+        listener.onEvent(new UserEvent(UserEvent.Operation.UPDATE, 1L, "a@example.com", 3L, Map.of("age", 30)), null);
+
+        verify(userCache).applyChange(1L, 3L, false);
+        verify(secondLevelCache).evict(1L);
+    }
+
+    @DisplayName("Должен пометить пользователя удаленным по событию DELETE.")
+    @Test
+    void onEvent_shouldApplyDelete() {
+        listener.onEvent(UserEvent.deleted(1L, "a@example.com", 3L), 42L);
+
+        verify(userCache).applyChange(1L, 3L, true);
+        verify(emailFilter).removed("a@example.com", 42L);
+        verify(secondLevelCache).evict(1L);
+    }
+
+    @DisplayName("Не должен трогать кэш второго уровня по событию CREATE.")
+    @Test
+    void onEvent_shouldNotEvictSecondLevelCache_onCreate() {
+        listener.onEvent(new UserEvent(UserEvent.Operation.CREATE, 1L, "a@example.com", 0L, Map.of()), null);
+
+        verifyNoInteractions(secondLevelCache);
+    }
+
+    @DisplayName("Должен добавить в фильтр email из CREATE и новый email из UPDATE.")
+    @Test
+    void onEvent_shouldAddEmailsToFilter() {
+        listener.onEvent(new UserEvent(UserEvent.Operation.CREATE, 1L, "a@example.com", 0L, Map.of()), 1L);
+        listener.onEvent(new UserEvent(UserEvent.Operation.UPDATE, 1L, "b@example.com", 1L, Map.of("email", "b@example.com")), 2L);
+        listener.onEvent(new UserEvent(UserEvent.Operation.UPDATE, 1L, "b@example.com", 2L, Map.of("age", 30)), 3L);
+
+        verify(emailFilter).added("a@example.com");
+        verify(emailFilter).added("b@example.com");
+        verifyNoMoreInteractions(emailFilter);
+    }
+
+    @DisplayName("Не должен убирать email из фильтра по DELETE без seq_no outbox.")
+    @Test
+    void onEvent_shouldNotRemoveFromFilter_whenSeqNoMissing() {
+        listener.onEvent(UserEvent.deleted(1L, "a@example.com", 3L), null);
+
+        verifyNoInteractions(emailFilter);
+    }
+
+    @DisplayName("Должен запустить построение фильтра после назначения партиций.")
+    @Test
+    void onPartitionsAssigned_shouldBuildFilter() {
+        listener.onPartitionsAssigned(Map.of(new TopicPartition("users", 0), 5L), mock(ConsumerSeekAware.ConsumerSeekCallback.class));
+
+        verify(emailFilter).build();
+    }
+
+    @DisplayName("Должен вытеснить по email событие без id.")
+    @Test
+    void onEvent_shouldEvictByEmail_whenIdMissing() {
+        listener.onEvent(new UserEvent(UserEvent.Operation.DELETE, null, "a@example.com", null, Map.of()), null);
+
+        verify(userCache).evictByEmail("a@example.com");
+        verifyNoMoreInteractions(userCache);
+    }
+
+    @DisplayName("Должен сообщить фильтру seq_no прочитанного события после его применения.")
+    @Test
+    void receive_shouldReportSeqNoToFilter() {
+        listener.receive(new UserEvent(UserEvent.Operation.CREATE, 1L, "a@example.com", 0L, Map.of()), bytes("7"));
+        listener.receive(null, null);
+
+        InOrder inOrder = inOrder(emailFilter);
+        inOrder.verify(emailFilter).added("a@example.com");
+        inOrder.verify(emailFilter).seen(7L);
+        verifyNoMoreInteractions(emailFilter);
+    }
+
+    @DisplayName("Контейнер слушателя не должен коммитить смещения, чтобы группа удалялась после остановки.")
+    @Test
+    void container_shouldNeverCommitOffsets() {
+        KafkaListener annotation = Arrays.stream(UserCacheCoherenceListener.class.getMethods())
+                .filter(method -> method.getName().equals("receive"))
+                .findFirst().orElseThrow()
+                .getAnnotation(KafkaListener.class);
+        assertEquals("noCommitContainerPostProcessor", annotation.containerPostProcessor());
+
+        KafkaMessageListenerContainer<Object, Object> container =
+                new KafkaMessageListenerContainer<>(mock(ConsumerFactory.class), new ContainerProperties("users"));
+        new NoCommitContainerPostProcessor().postProcess(container);
+
+        assertEquals(ContainerProperties.AckMode.MANUAL, container.getContainerProperties().getAckMode());
+        assertEquals(ContainerProperties.AssignmentCommitOption.NEVER,
+                container.getContainerProperties().getAssignmentCommitOption());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package aston.user_service.kafka;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventDeserializer;
+import user_service.kafka.UserEventProducer;
+import user_service.kafka.UserEventSerializer;
+import user_service.metrics.UserMetrics;
+import user_service.model.OutboxEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Продюсер с настройками профиля kafka-throughput (lz4, linger, идемпотентность)
+ * против встроенного брокера: события доходят в исходном порядке, подтверждения
+ * попадают в таймер users.kafka.send.
+ */
+@EmbeddedKafka(topics = UserEventProducerEmbeddedKafkaTest.TOPIC, partitions = 1)
+class UserEventProducerEmbeddedKafkaTest {
+    static final String TOPIC = "users";
+    private static final int EVENTS = 1000;
+
+    @DisplayName("Должен доставить пачку событий с настройками профиля kafka-throughput.")
+    @Test
+    void sendAll_shouldDeliverBatchWithThroughputProfile(EmbeddedKafkaBroker broker) throws IOException {
+        Map<String, Object> producerProperties = throughputProfile().buildProducerProperties();
+        assertEquals(UserEventSerializer.class, producerProperties.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        assertEquals("lz4", producerProperties.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals("20", producerProperties.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("true", producerProperties.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        producerProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultKafkaProducerFactory<String, UserEvent> producerFactory = new DefaultKafkaProducerFactory<>(producerProperties);
+        UserEventProducer producer = new UserEventProducer(new KafkaTemplate<>(producerFactory), new UserMetrics(registry));
+        ReflectionTestUtils.setField(producer, "topic", TOPIC);
+
+        List<UserEvent> events = IntStream.range(0, EVENTS)
+                .mapToObj(i -> new UserEvent(i % 2 == 0 ? UserEvent.Operation.CREATE : UserEvent.Operation.UPDATE,
+                        (long) i, "user" + i + "@example.com", 0L, i % 2 == 0 ? Map.of() : Map.of("age", i)))
+                .toList();
+        List<OutboxEvent> sources = IntStream.range(0, EVENTS)
+                .mapToObj(i -> OutboxEvent.builder().seqNo((long) i + 1).build())
+                .toList();
+        try {
+            CompletableFuture.allOf(producer.sendAll(events, sources).toArray(CompletableFuture[]::new)).join();
+        } finally {
+            producerFactory.destroy();
+        }
+
+        Timer acks = registry.find(UserMetrics.KAFKA_SEND_TIMER).tags("outcome", "ack", "exception", "none").timer();
+        assertNotNull(acks);
+        assertEquals(EVENTS, acks.count());
+        List<ConsumerRecord<String, UserEvent>> received = consumeAll(broker);
+        assertEquals(events, received.stream().map(ConsumerRecord::value).toList());
+        assertEquals("user0@example.com", received.getFirst().key());
+        Headers headers = received.getFirst().headers();
+        assertArrayEquals("1".getBytes(StandardCharsets.UTF_8),
+                headers.lastHeader(UserEventProducer.SEQ_NO_HEADER).value());
+    }
+
+    @DisplayName("Без профиля kafka-throughput события должны писаться в JSON.")
+    @Test
+    void defaultProfile_shouldSerializeEventsAsJson() throws IOException {
+        Map<String, Object> producerProperties = kafkaProperties("application.yml").buildProducerProperties();
+
+        assertEquals(JacksonJsonSerializer.class, producerProperties.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+    }
+
+    private static KafkaProperties throughputProfile() throws IOException {
+        return kafkaProperties("application-kafka-throughput.yml", "application.yml");
+    }
+
+    private static KafkaProperties kafkaProperties(String... files) throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        for (String name : files) {
+            loader.load(name, new ClassPathResource(name)).forEach(environment.getPropertySources()::addLast);
+        }
+        return Binder.get(environment).bind("spring.kafka", KafkaProperties.class).get();
+    }
+
+    private static List<ConsumerRecord<String, UserEvent>> consumeAll(EmbeddedKafkaBroker broker) {
+        Map<String, Object> consumerProperties = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "user-event-producer-test",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        List<ConsumerRecord<String, UserEvent>> received = new ArrayList<>(EVENTS);
+        try (KafkaConsumer<String, UserEvent> consumer = new KafkaConsumer<>(consumerProperties,
+                new StringDeserializer(), new UserEventDeserializer())) {
+            consumer.subscribe(List.of(TOPIC));
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (received.size() < EVENTS && System.nanoTime() < deadline) {
+                ConsumerRecords<String, UserEvent> records = consumer.poll(Duration.ofMillis(500));
+                records.forEach(received::add);
+            }
+        }
+        return received;
+    }
+}
@@ -0,0 +1,82 @@
+package aston.user_service.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventDeserializer;
+import user_service.kafka.UserEventSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventSerializerTest {
+
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    @DisplayName("Должен восстановить событие после сериализации.")
+    @Test
+    void roundTrip_shouldPreserveEvent() {
+        for (UserEvent.Operation operation : UserEvent.Operation.values()) {
+            UserEvent event = new UserEvent(operation, 42L, "иван@пример.рф", 3L, Map.of());
+
+            assertEquals(event, deserializer.deserialize("users", serializer.serialize("users", event)));
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("name", "Иван");
+        changes.put("age", 31);
+        UserEvent update = new UserEvent(UserEvent.Operation.UPDATE, 42L, "ivan@example.com", 4L, changes);
+
+        UserEvent restored = deserializer.deserialize("users", serializer.serialize("users", update));
+
+        assertEquals(update, restored);
+        assertEquals(List.of("name", "age"), List.copyOf(restored.changes().keySet()));
+    }
+
+    @DisplayName("Компактная запись должна быть короче JSON.")
+    @Test
+    void serialize_shouldBeSmallerThanJson() {
+        UserEvent event = new UserEvent(UserEvent.Operation.UPDATE, 42L, "ivan@example.com", 4L, Map.of("age", 31));
+        byte[] json = JsonMapper.builder().build().writeValueAsBytes(event);
+
+        byte[] compact = serializer.serialize("users", event);
+
+        assertTrue(compact.length * 2 < json.length, compact.length + " vs " + json.length);
+    }
+
+    @DisplayName("Должен читать JSON, который пишет продюсер по умолчанию.")
+    @Test
+    void deserialize_shouldReadDefaultJsonSerializerOutput() {
+        UserEvent event = new UserEvent(UserEvent.Operation.UPDATE, 42L, "ivan@example.com", 4L, Map.of("age", 31));
+        try (JacksonJsonSerializer<UserEvent> json = new JacksonJsonSerializer<>()) {
+            assertEquals(event, deserializer.deserialize("users", json.serialize("users", event)));
+        }
+    }
+
+    @DisplayName("Должен читать события, записанные в JSON и в первой версии формата.")
+    @Test
+    void deserialize_shouldAcceptLegacyFormats() {
+        byte[] json = "{\"operation\":\"DELETE\",\"email\":\"ivan@example.com\"}".getBytes();
+        byte[] v1 = {1, 0, 'a', '@', 'b'};
+
+        assertEquals(new UserEvent(UserEvent.Operation.DELETE, null, "ivan@example.com", null, Map.of()),
+                deserializer.deserialize("users", json));
+        assertEquals(new UserEvent(UserEvent.Operation.CREATE, null, "a@b", null, Map.of()),
+                deserializer.deserialize("users", v1));
+    }
+
+    @DisplayName("Должен отклонить запись неизвестного формата.")
+    @Test
+    void deserialize_shouldRejectUnknownFormat() {
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("users", new byte[]{9, 0, 'a'}));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("users", new byte[]{1, 42, 'a'}));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("users", new byte[]{2, 0, 0, 0}));
+        assertNull(deserializer.deserialize("users", null));
+    }
+}
@@ -0,0 +1,159 @@
+package aston.user_service.load;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import user_service.UserServiceApplication;
+import user_service.model.User;
+import user_service.repository.UserRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Нагрузочный прогон GET /api/users (страница из БД, без кэша) с большим числом
+ * одновременных клиентов. Наследники запускают его в режиме платформенных
+ * и виртуальных потоков; пропускная способность и перцентили пишутся в лог.
+ * Прогон проходит, если каждый запрос завершился до таймаута клиента.
+ * Запуск: {@code mvn test -Pload-test}. Без Docker — на существующей БД:
+ * {@code -Dload-test.jdbc-url=jdbc:postgresql://host:5432/db [-Dload-test.username=... -Dload-test.password=...]}.
+ * Число клиентов и запросов на клиента: {@code -Dload-test.clients}, {@code -Dload-test.requests-per-client}.
+ */
+@Tag("load")
+@SpringBootTest(classes = UserServiceApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.cloud.config.enabled=false",
+                "eureka.client.enabled=false",
+                "app.kafka.topic=users",
+                "app.rate-limit.enabled=false"
+        })
+abstract class AbstractUserLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractUserLoadTest.class);
+    private static final int USERS = 1_000;
+    private static final int CLIENTS = Integer.getInteger("load-test.clients", 1_000);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("load-test.requests-per-client", 20);
+    private static final Duration CLIENT_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String EXTERNAL_URL = System.getProperty("load-test.jdbc-url");
+    private static PostgreSQLContainer postgres;
+
+    @BeforeAll
+    static void requireDatabase() {
+        assumeTrue(EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                "нужен Docker или -Dload-test.jdbc-url");
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> System.getProperty("load-test.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("load-test.password", ""));
+            return;
+        }
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer("postgres:17-alpine");
+            postgres.start();
+        }
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeEach
+    void seed() {
+        if (userRepository.count() == 0) {
+            userRepository.saveAll(IntStream.range(0, USERS)
+                    .mapToObj(i -> User.builder().name("user" + i).email("user" + i + "@example.com").age(i % 100).build())
+                    .toList());
+        }
+    }
+
+    abstract String mode();
+
+    /**
+     * Каждый запрос должен завершиться до таймаута клиента: 200 или быстрый отказ 503
+     * при исчерпанном лимите конкурентности. Ошибки и таймауты проваливают прогон.
+     */
+    @Test
+    void getAll_underConcurrentLoad() throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users?size=50"))
+                .timeout(CLIENT_TIMEOUT)
+                .GET()
+                .build();
+
+        AtomicInteger rejected = new AtomicInteger();
+        long started = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>(CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                results.add(clients.submit(() -> {
+                    long[] latencies = new long[REQUESTS_PER_CLIENT];
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long t = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 503) {
+                            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+                            rejected.incrementAndGet();
+                        } else {
+                            assertEquals(200, response.statusCode());
+                        }
+                        latencies[r] = System.nanoTime() - t;
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        long[] all = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        int i = 0;
+        for (Future<long[]> result : results) {
+            for (long latency : result.get()) {
+                all[i++] = latency;
+            }
+        }
+        Arrays.sort(all);
+        logger.info("[{}] запросов: {}, отклонено: {}, rps: {}, p50: {} мс, p99: {} мс, max: {} мс",
+                mode(), all.length, rejected.get(),
+                Math.round(all.length / (elapsed / 1e9)),
+                all[all.length / 2] / 1_000_000.0,
+                all[(int) (all.length * 0.99)] / 1_000_000.0,
+                all[all.length - 1] / 1_000_000.0);
+        assertTrue(rejected.get() < all.length, "ни один запрос не выполнен");
+        assertTrue(all[all.length - 1] < CLIENT_TIMEOUT.toNanos());
+    }
+}
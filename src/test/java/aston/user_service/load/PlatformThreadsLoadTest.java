@@ -0,0 +1,9 @@
+package aston.user_service.load;
+
+class PlatformThreadsLoadTest extends AbstractUserLoadTest {
+
+    @Override
+    String mode() {
+        return "platform-threads";
+    }
+}
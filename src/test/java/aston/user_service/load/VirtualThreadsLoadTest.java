@@ -0,0 +1,12 @@
+package aston.user_service.load;
+
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("virtual-threads")
+class VirtualThreadsLoadTest extends AbstractUserLoadTest {
+
+    @Override
+    String mode() {
+        return "virtual-threads";
+    }
+}
@@ -0,0 +1,61 @@
+package aston.user_service.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.QueryTimeoutException;
+import user_service.metrics.RepositoryMetricsInterceptor;
+import user_service.metrics.UserMetrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryMetricsInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private SampleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("userMetrics", new UserMetrics(registry));
+
+        ProxyFactory proxyFactory = new ProxyFactory(new SampleRepository());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new RepositoryMetricsInterceptor(beanFactory.getBeanProvider(UserMetrics.class)));
+        repository = (SampleRepository) proxyFactory.getProxy();
+    }
+
+    @DisplayName("Должен записать время успешного запроса к БД.")
+    @Test
+    void invoke_shouldTimeSuccessfulQuery() {
+        repository.update();
+
+        assertEquals(1, registry.get(UserMetrics.DB_TIMER)
+                .tags("repository", "SampleRepository", "operation", "update", "outcome", "success")
+                .timer().count());
+    }
+
+    @DisplayName("Должен записать исход упавшего запроса по имени исключения.")
+    @Test
+    void invoke_shouldTimeFailedQuery() {
+        assertThrows(QueryTimeoutException.class, repository::deleteByIds);
+
+        assertEquals(1, registry.get(UserMetrics.DB_TIMER)
+                .tags("operation", "deleteByIds", "outcome", "QueryTimeoutException")
+                .timer().count());
+    }
+
+    static class SampleRepository {
+        public int update() {
+            return 1;
+        }
+
+        public int deleteByIds() {
+            throw new QueryTimeoutException("timeout");
+        }
+    }
+}
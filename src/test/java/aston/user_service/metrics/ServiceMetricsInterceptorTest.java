@@ -0,0 +1,73 @@
+package aston.user_service.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import user_service.exception.DuplicateEmailException;
+import user_service.exception.NotFoundException;
+import user_service.metrics.ServiceMetricsInterceptor;
+import user_service.metrics.UserMetrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceMetricsInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private SampleService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("userMetrics", new UserMetrics(registry));
+
+        ProxyFactory proxyFactory = new ProxyFactory(new SampleService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new ServiceMetricsInterceptor(beanFactory.getBeanProvider(UserMetrics.class)));
+        service = (SampleService) proxyFactory.getProxy();
+    }
+
+    @DisplayName("Должен записать время успешной операции.")
+    @Test
+    void invoke_shouldTimeSuccessfulOperation() {
+        service.find();
+
+        assertEquals(1, registry.get(UserMetrics.SERVICE_TIMER)
+                .tags("service", "SampleService", "operation", "find", "outcome", "success")
+                .timer().count());
+    }
+
+    @DisplayName("Должен посчитать исход 'не найден'.")
+    @Test
+    void invoke_shouldCountNotFound() {
+        assertThrows(NotFoundException.class, service::missing);
+
+        assertEquals(1, registry.get(UserMetrics.NOT_FOUND_COUNTER).tag("operation", "missing").counter().count());
+        assertEquals(1, registry.get(UserMetrics.SERVICE_TIMER).tag("outcome", "NotFoundException").timer().count());
+    }
+
+    @DisplayName("Должен посчитать исход 'email занят'.")
+    @Test
+    void invoke_shouldCountDuplicateEmail() {
+        assertThrows(DuplicateEmailException.class, service::duplicate);
+
+        assertEquals(1, registry.get(UserMetrics.DUPLICATE_EMAIL_COUNTER).tag("operation", "duplicate").counter().count());
+    }
+
+    static class SampleService {
+        public String find() {
+            return "found";
+        }
+
+        public String missing() {
+            throw new NotFoundException("not found");
+        }
+
+        public String duplicate() {
+            throw new DuplicateEmailException("duplicate");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package aston.user_service.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.metrics.UserMetrics;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private UserMetrics userMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        userMetrics = new UserMetrics(registry);
+    }
+
+    @DisplayName("Должен зарегистрировать таймеры успешных операций до первого вызова.")
+    @Test
+    void register_shouldCreateTimersWithZeroCount() {
+        userMetrics.registerServiceOperations("UserService", List.of("getById", "create"));
+        userMetrics.registerDbOperations("UserJdbcRepository", List.of("update"));
+        userMetrics.registerKafkaTopic("users");
+
+        assertEquals(0, registry.get(UserMetrics.SERVICE_TIMER)
+                .tags("service", "UserService", "operation", "getById", "outcome", "success").timer().count());
+        assertEquals(0, registry.get(UserMetrics.DB_TIMER)
+                .tags("repository", "UserJdbcRepository", "operation", "update", "outcome", "success").timer().count());
+        assertEquals(0, registry.get(UserMetrics.KAFKA_SEND_TIMER)
+                .tags("topic", "users", "outcome", "ack").timer().count());
+    }
+
+    @DisplayName("Должен записывать повторные замеры в тот же зарегистрированный таймер.")
+    @Test
+    void recordOperation_shouldReuseRegisteredTimer() {
+        userMetrics.registerServiceOperations("UserService", List.of("getById"));
+        Timer registered = registry.get(UserMetrics.SERVICE_TIMER).tag("operation", "getById").timer();
+        int meters = registry.getMeters().size();
+
+        for (int i = 0; i < 3; i++) {
+            userMetrics.recordOperation(userMetrics.start(), "UserService", "getById", "success");
+        }
+
+        assertEquals(3, registered.count());
+        assertEquals(meters, registry.getMeters().size());
+    }
+
+    @DisplayName("Должен считать отказы лимитов по endpoint и причине.")
+    @Test
+    void rateLimited_shouldCountPerEndpointAndReason() {
+        userMetrics.rateLimited("GET /api/users/{id}", "client");
+        userMetrics.rateLimited("GET /api/users/{id}", "client");
+        userMetrics.rateLimited("GET /api/users/{id}", "endpoint");
+
+        assertEquals(2, registry.get(UserMetrics.RATE_LIMITED_COUNTER).tag("reason", "client").counter().count());
+        assertEquals(1, registry.get(UserMetrics.RATE_LIMITED_COUNTER).tag("reason", "endpoint").counter().count());
+    }
+}
@@ -0,0 +1,77 @@
+package aston.user_service.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.ratelimit.AimdLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AimdLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private AimdLimiter limiter(int initial) {
+        return new AimdLimiter(initial, 2, 20, Duration.ofMillis(100), 0.5, now::get);
+    }
+
+    @DisplayName("Должен отказывать сверх лимита и снова пускать после возврата разрешения.")
+    @Test
+    void tryAcquire_shouldRejectOverLimit() {
+        AimdLimiter limiter = limiter(2);
+        AimdLimiter.Permit first = limiter.tryAcquire();
+        AimdLimiter.Permit second = limiter.tryAcquire();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+
+        first.releaseWithoutSample();
+        first.releaseWithoutSample();
+        assertEquals(1, limiter.inFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @DisplayName("Должен увеличивать лимит на 1 за быстрый запрос под нагрузкой.")
+    @Test
+    void complete_shouldIncreaseLimitWhenFastAndBusy() {
+        AimdLimiter limiter = limiter(4);
+        AimdLimiter.Permit first = limiter.tryAcquire();
+        AimdLimiter.Permit second = limiter.tryAcquire();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        second.complete(false);
+        first.complete(false);
+
+        assertEquals(5, limiter.limit());
+    }
+
+    @DisplayName("Не должен увеличивать лимит, если загрузка ниже половины.")
+    @Test
+    void complete_shouldKeepLimitWhenIdle() {
+        AimdLimiter limiter = limiter(4);
+
+        limiter.tryAcquire().complete(false);
+
+        assertEquals(4, limiter.limit());
+    }
+
+    @DisplayName("Должен уменьшать лимит при медленном запросе или перегрузке, но не ниже минимума.")
+    @Test
+    void complete_shouldDecreaseLimitWhenSlowOrOverloaded() {
+        AimdLimiter limiter = limiter(16);
+        AimdLimiter.Permit slow = limiter.tryAcquire();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        slow.complete(false);
+        assertEquals(8, limiter.limit());
+
+        limiter.tryAcquire().complete(true);
+        limiter.tryAcquire().complete(true);
+        limiter.tryAcquire().complete(true);
+
+        assertEquals(2, limiter.limit());
+    }
+}
@@ -0,0 +1,75 @@
+package aston.user_service.ratelimit;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.exception.ServiceOverloadedException;
+import user_service.ratelimit.DbConcurrencyLimit;
+import user_service.ratelimit.DbConcurrencyLimitInterceptor;
+import user_service.ratelimit.DbConcurrencyLimiter;
+import user_service.service.UserService;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DbConcurrencyLimitInterceptorTest {
+
+    @DisplayName("Должен отклонить вызов, не дождавшийся разрешения за max-wait, и пустить после освобождения.")
+    @Test
+    void invoke_shouldRejectAfterMaxWait_whenSaturated() throws Throwable {
+        DbConcurrencyLimitInterceptor interceptor = new DbConcurrencyLimitInterceptor(new DbConcurrencyLimiter(1, Duration.ofMillis(50)));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MethodInvocation slow = mock(MethodInvocation.class);
+        when(slow.proceed()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return "slow";
+        });
+        MethodInvocation fast = mock(MethodInvocation.class);
+        when(fast.proceed()).thenReturn("fast");
+
+        CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return interceptor.invoke(slow);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class, () -> interceptor.invoke(fast));
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+        verify(fast, never()).proceed();
+
+        release.countDown();
+        assertEquals("slow", running.get(5, TimeUnit.SECONDS));
+        assertEquals("fast", interceptor.invoke(fast));
+    }
+
+    @DisplayName("Нулевой лимит не должен ограничивать вызовы.")
+    @Test
+    void invoke_shouldPassThrough_whenDisabled() throws Throwable {
+        DbConcurrencyLimitInterceptor interceptor = new DbConcurrencyLimitInterceptor(new DbConcurrencyLimiter(-1, Duration.ZERO));
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.proceed()).thenReturn("ok");
+
+        assertEquals("ok", interceptor.invoke(invocation));
+    }
+
+    @DisplayName("Выгрузка, массовое удаление и чтения через кэш не должны занимать лимит целиком, короткие записи — должны.")
+    @Test
+    void userService_shouldLimitOnlyShortOperations() throws NoSuchMethodException {
+        assertTrue(UserService.class.getMethod("delete", Long.class, Long.class).isAnnotationPresent(DbConcurrencyLimit.class));
+        assertFalse(UserService.class.getMethod("getById", Long.class).isAnnotationPresent(DbConcurrencyLimit.class));
+        assertFalse(UserService.class.getMethod("streamAll", OutputStream.class).isAnnotationPresent(DbConcurrencyLimit.class));
+        assertFalse(UserService.class.getMethod("deleteCreatedBefore", LocalDateTime.class).isAnnotationPresent(DbConcurrencyLimit.class));
+    }
+}
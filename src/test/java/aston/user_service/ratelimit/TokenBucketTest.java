@@ -0,0 +1,58 @@
+package aston.user_service.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.ratelimit.TokenBucket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @DisplayName("Должен пропустить burst запросов подряд и отказать следующему с временем ожидания.")
+    @Test
+    void tryAcquire_shouldAllowBurstThenReject() {
+        TokenBucket bucket = new TokenBucket(10, 3, now::get);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        long wait = bucket.tryAcquire();
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait, TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @DisplayName("Должен пополняться со скоростью rate, но не выше burst.")
+    @Test
+    void tryAcquire_shouldRefillUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @DisplayName("Должен вернуть токен при refund, но не выше burst.")
+    @Test
+    void refund_shouldReturnTokenUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 1, now::get);
+        bucket.refund();
+
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        bucket.refund();
+        assertEquals(0, bucket.tryAcquire());
+    }
+}
@@ -0,0 +1,64 @@
+package aston.user_service.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import user_service.exception.BadRequestException;
+import user_service.model.User;
+import user_service.service.UserCsv;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCsvTest {
+
+    @Test
+    @DisplayName("Строка CSV: поля с запятой и кавычками экранируются по RFC 4180")
+    void rowQuotesSpecialCharacters() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        User user = User.builder()
+                .id(7L).name("Ivanov, \"Ivan\"").email("ivan@example.com").age(25)
+                .createdAt(time).updatedAt(time).version(3L)
+                .build();
+
+        assertEquals("7,\"Ivanov, \"\"Ivan\"\"\",ivan@example.com,25,2025-01-02T03:04:05,2025-01-02T03:04:05,3\n",
+                UserCsv.row(user));
+    }
+
+    @Test
+    @DisplayName("Чтение CSV: кавычки, перевод строки внутри поля и окончания \\r\\n")
+    void readsQuotedMultilineRecords() throws IOException {
+        UserCsv.RecordReader reader = new UserCsv.RecordReader(new StringReader(
+                "name,email,age\r\n\"Ivan\nPetrov\",ivan@example.com,25\r\n\"a \"\"b\"\", c\",,\n"));
+
+        assertEquals(List.of("name", "email", "age"), reader.next());
+        assertEquals(1, reader.line());
+        assertEquals(List.of("Ivan\nPetrov", "ivan@example.com", "25"), reader.next());
+        assertEquals(2, reader.line());
+        assertEquals(List.of("a \"b\", c", "", ""), reader.next());
+        assertEquals(4, reader.line());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Чтение CSV: последняя строка без перевода строки")
+    void readsLastRecordWithoutNewline() throws IOException {
+        UserCsv.RecordReader reader = new UserCsv.RecordReader(new StringReader("a,b"));
+
+        assertEquals(List.of("a", "b"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Чтение CSV: незакрытая кавычка — 400")
+    void unterminatedQuoteIsBadRequest() throws IOException {
+        UserCsv.RecordReader reader = new UserCsv.RecordReader(new StringReader("a,b\n\"Ivan,25\n"));
+        reader.next();
+
+        BadRequestException e = assertThrows(BadRequestException.class, reader::next);
+        assertTrue(e.getMessage().contains("line 2"));
+    }
+}
@@ -5,27 +5,64 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import user_service.cache.EmailExistenceFilter;
+import user_service.cache.UserCache;
+import user_service.cache.UserLoadCoalescer;
+import user_service.dto.UserBatchCreateResponse;
 import user_service.dto.UserCreateRequest;
+import user_service.dto.UserLookupRequest;
+import user_service.dto.UserLookupResponse;
+import user_service.dto.UserPage;
 import user_service.dto.UserPatchRequest;
 import user_service.dto.UserResponse;
+import user_service.dto.UserSearchRequest;
 import user_service.exception.BadRequestException;
 import user_service.exception.NotFoundException;
-import user_service.kafka.UserEventProducer;
+import user_service.exception.PreconditionFailedException;
+import user_service.exception.ServiceOverloadedException;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventOutbox;
 import user_service.mapper.UserMapper;
 import user_service.model.User;
+import user_service.ratelimit.DbConcurrencyLimiter;
+import user_service.repository.UserJdbcRepository;
 import user_service.repository.UserRepository;
+import user_service.repository.UserSearchQuery;
 import user_service.service.UserService;
+import user_service.service.VersionPrecondition;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,9 +71,21 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private UserEventProducer userEventProducer;
+    private UserEventOutbox userEventOutbox;
     @Mock
     private UserMapper userMapper;
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UserCache userCache;
+    @Mock
+    private EmailExistenceFilter emailFilter;
+    @Spy
+    private UserLoadCoalescer userLoadCoalescer = new UserLoadCoalescer(true, Duration.ofSeconds(5));
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    @Spy
+    private DbConcurrencyLimiter dbLimiter = new DbConcurrencyLimiter(1, Duration.ofMillis(50));
     @InjectMocks
     UserService userService;
 
@@ -51,8 +100,8 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         LocalDateTime createdAt = LocalDateTime.now();
-        user = new User(1L, "test", "test@example.com", 100, createdAt);
-        patchedUser = new User(1L, "test", "test@example.com", 25, createdAt);
+        user = new User(1L, "test", "test@example.com", 100, createdAt, createdAt, 0L);
+        patchedUser = new User(1L, "test", "test@example.com", 25, createdAt, createdAt, 0L);
 
         userCreateRequest = new UserCreateRequest();
             userCreateRequest.setName("test");
@@ -67,8 +116,8 @@ class UserServiceTest {
         userPatchRequest = new UserPatchRequest();
             userPatchRequest.setAge(25);
 
-        response = new UserResponse(1L, "test", "test@example.com", 100, createdAt);
-        patchedUserResponse = new UserResponse(1L, "test", "test@example.com", 25, createdAt);
+        response = new UserResponse(1L, "test", "test@example.com", 100, createdAt, createdAt, 0L);
+        patchedUserResponse = new UserResponse(1L, "test", "test@example.com", 25, createdAt, createdAt, 0L);
     }
 
     @AfterEach
@@ -79,15 +128,16 @@ class UserServiceTest {
     @Test
     void create_shouldSaveAndReturnResponse() {
         when(userMapper.toEntity(userCreateRequest)).thenReturn(user);
-        when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
         when(userMapper.toResponse(user)).thenReturn(response);
 
         UserResponse savedUser = userService.create(userCreateRequest);
 
         assertSame(response, savedUser);
         verify(userMapper, times(1)).toEntity(userCreateRequest);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
         verify(userMapper, times(1)).toResponse(user);
+        verify(userEventOutbox, times(1)).enqueue(UserEvent.created(user));
     }
 
     @DisplayName("Должен бросить BadRequestException, если email не уникален.")
@@ -95,11 +145,83 @@ class UserServiceTest {
     void create_shouldThrowBadRequest_whenDuplicateEmail() {
         when(userMapper.toEntity(userCreateRequest)).thenReturn(user);
         doThrow(new DataIntegrityViolationException("duplicate email"))
-                .when(userRepository).save(user);
+                .when(userRepository).saveAndFlush(user);
 
         assertThrows(BadRequestException.class,() -> userService.create(userCreateRequest));
         verify(userMapper, times(1)).toEntity(userCreateRequest);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @DisplayName("Должен вставить пакет одним запросом и вернуть в ошибках элементы, которые вставка пропустила.")
+    @Test
+    void createBatch_shouldReportRowsSkippedByInsert() {
+        UserCreateRequest taken = new UserCreateRequest();
+        taken.setName("taken");
+        taken.setEmail("taken@example.com");
+        taken.setAge(30);
+        User takenUser = new User(null, "taken", "taken@example.com", 30, null, null, null);
+        User inserted = new User(10L, "test", "test@example.com", 100, user.getCreatedAt(), user.getUpdatedAt(), 0L);
+
+        when(userJdbcRepository.allocateIds(3)).thenReturn(new long[]{10, 11, 12});
+        when(userMapper.toEntity(userCreateRequest)).thenReturn(user);
+        when(userMapper.toEntity(taken)).thenReturn(takenUser);
+        when(userJdbcRepository.insertIgnoringDuplicates(eq(List.of(
+                new UserJdbcRepository.ImportRow(10, "test", "test@example.com", 100),
+                new UserJdbcRepository.ImportRow(11, "taken", "taken@example.com", 30),
+                new UserJdbcRepository.ImportRow(12, "test", "test@example.com", 100))), any()))
+                .thenReturn(List.of(inserted));
+        when(userMapper.toResponse(inserted)).thenReturn(response);
+
+        UserBatchCreateResponse result = userService.createBatch(List.of(userCreateRequest, taken, userCreateRequest));
+
+        assertEquals(List.of(response), result.getCreated());
+        assertEquals(List.of(1, 2), result.getErrors().stream().map(UserBatchCreateResponse.ItemError::getIndex).toList());
+        assertEquals("taken@example.com", result.getErrors().getFirst().getEmail());
+        verify(emailFilter).added("test@example.com");
+        verify(userEventOutbox, times(1)).enqueueAll(List.of(UserEvent.created(inserted)));
+    }
+
+    @DisplayName("Email, занятый параллельной регистрацией, должен стать ошибкой элемента, а не отказом всего пакета.")
+    @Test
+    void createBatch_shouldReportConcurrentlyTakenEmail_asItemError() {
+        when(userJdbcRepository.allocateIds(1)).thenReturn(new long[]{10});
+        when(userMapper.toEntity(userCreateRequest)).thenReturn(user);
+        when(userJdbcRepository.insertIgnoringDuplicates(anyList(), any())).thenReturn(List.of());
+
+        UserBatchCreateResponse result = userService.createBatch(List.of(userCreateRequest));
+
+        assertTrue(result.getCreated().isEmpty());
+        assertEquals(List.of(0), result.getErrors().stream().map(UserBatchCreateResponse.ItemError::getIndex).toList());
+        verify(emailFilter, never()).added(any());
+        verify(userEventOutbox).enqueueAll(List.of());
+    }
+
+    @DisplayName("Должен отклонить занятый email проверкой до INSERT.")
+    @Test
+    void create_shouldRejectDuplicateBeforeInsert_whenFilterMightContain() {
+        when(emailFilter.isReady()).thenReturn(true);
+        when(emailFilter.mightExist("test@example.com")).thenReturn(true);
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> userService.create(userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @DisplayName("Должен сохранить пользователя без проверки в БД, если email точно свободен, и добавить email в фильтр.")
+    @Test
+    void create_shouldSkipExistsQuery_whenFilterSaysAbsent() {
+        when(emailFilter.isReady()).thenReturn(true);
+        when(emailFilter.mightExist("test@example.com")).thenReturn(false);
+        when(userMapper.toEntity(userCreateRequest)).thenReturn(user);
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        userService.create(userCreateRequest);
+
+        verify(userRepository, never()).existsByEmail(any());
+        verify(emailFilter).added("test@example.com");
     }
 
     @DisplayName("Должен вернуть пользователя по id из БД.")
@@ -115,6 +237,98 @@ class UserServiceTest {
         verify(userMapper, times(1)).toResponse(user);
     }
 
+    @DisplayName("Должен вернуть пользователя из кэша без обращения к БД.")
+    @Test
+    void getById_shouldReturnCachedResponse() {
+        when(userCache.getById(1L)).thenReturn(Optional.of(response));
+
+        UserResponse foundUser = userService.getById(1L);
+
+        assertSame(response, foundUser);
+        verifyNoInteractions(userRepository, userMapper);
+    }
+
+    @DisplayName("Должен положить найденного пользователя в кэш.")
+    @Test
+    void getById_shouldPopulateCache() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        userService.getById(1L);
+
+        verify(userCache).put(response);
+    }
+
+    @DisplayName("Одновременные промахи по одному id должны разделить одну загрузку из БД.")
+    @Test
+    void getById_shouldCoalesceConcurrentMisses() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userLoadCoalescer.bindTo(registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return Optional.of(user);
+        });
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<UserResponse> leader = executor.submit(() -> userService.getById(1L));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<UserResponse> follower = executor.submit(() -> userService.getById(1L));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("users.single_flight.coalesced").tag("operation", "getById").functionCounter().count() < 1) {
+                assertTrue(System.nanoTime() < deadline, "follower did not join the load");
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertSame(response, leader.get(5, TimeUnit.SECONDS));
+            assertSame(response, follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userRepository, times(1)).findById(1L);
+        verify(userCache, times(1)).put(response);
+    }
+
+    @DisplayName("Попадания в кэш должны отвечать, когда все разрешения лимита БД заняты, а промах — получить 503.")
+    @Test
+    void getById_shouldServeCacheHits_whenDbPermitsExhausted() throws Exception {
+        when(userCache.getById(1L)).thenReturn(Optional.of(response));
+        when(userCache.getById(2L)).thenReturn(Optional.empty());
+        when(userCache.getByEmail("test@example.com")).thenReturn(Optional.of(response));
+        when(emailFilter.mightExist("test@example.com")).thenReturn(true);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> holder = executor.submit(() -> dbLimiter.call(() -> {
+                holding.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            assertSame(response, userService.getById(1L));
+            assertSame(response, userService.getByEmail("test@example.com"));
+            assertTrue(userService.emailExists("test@example.com"));
+            assertThrows(ServiceOverloadedException.class, () -> userService.getById(2L));
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        verifyNoInteractions(userRepository);
+    }
+
     @DisplayName("Должен бросить NotFoundException, если пользователь по id не найден.")
     @Test
     void getById_shouldThrowNotFoundException() {
@@ -124,118 +338,419 @@ class UserServiceTest {
         verify(userRepository, times(1)).findById(1L);
     }
 
-    @DisplayName("Должен вернуть список всех пользователей из БД.")
+    @DisplayName("Должен вернуть первую страницу пользователей без курсора следующей страницы.")
     @Test
-    void getAll_shouldReturnMappedList() {
+    void getPage_shouldReturnMappedPage() {
         List<User> userList = Arrays.asList(user, user);
         List<UserResponse> responseList = Arrays.asList(response, response);
 
-        when(userRepository.findAll()).thenReturn(userList);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(UserService.DEFAULT_PAGE_SIZE)))
+                .thenReturn(userList);
         when(userMapper.toResponse(user)).thenReturn(response);
 
-        List<UserResponse> foundList = userService.getAll();
+        UserPage page = userService.getPage(null, null);
 
-        assertIterableEquals(responseList, foundList);
-        verify(userRepository, times(1)).findAll();
+        assertIterableEquals(responseList, page.getContent());
+        assertNull(page.getNextCursor());
         verify(userMapper, times(2)).toResponse(user);
+    }
+
+    @DisplayName("Должен вернуть курсор, по которому читается следующая страница.")
+    @Test
+    void getPage_shouldReturnNextCursor_whenPageIsFull() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1))).thenReturn(List.of(user));
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(1))).thenReturn(List.of());
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        UserPage first = userService.getPage(null, 1);
+        UserPage second = userService.getPage(first.getNextCursor(), 1);
+
+        assertNotNull(first.getNextCursor());
+        assertTrue(second.getContent().isEmpty());
+        assertNull(second.getNextCursor());
+    }
+
+    @DisplayName("Должен бросить BadRequestException, если курсор поврежден.")
+    @Test
+    void getPage_shouldThrowBadRequest_whenCursorIsInvalid() {
+        assertThrows(BadRequestException.class, () -> userService.getPage("not-a-cursor", null));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Должен передать фильтры и сортировку в запрос поиска.")
+    @Test
+    void search_shouldBuildQueryFromRequest() {
+        UserSearchRequest request = new UserSearchRequest();
+        request.setName("Iv");
+        request.setEmail("ivan@");
+        request.setMinAge(18);
+        request.setMaxAge(65);
+        request.setSort("age,desc");
+        when(userJdbcRepository.search(any())).thenReturn(List.of(user));
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        UserPage page = userService.search(request);
+
+        assertIterableEquals(List.of(response), page.getContent());
+        assertNull(page.getNextCursor());
+        verify(userJdbcRepository).search(new UserSearchQuery("Iv", "ivan@", 18, 65, null, null,
+                UserSearchQuery.SortField.AGE, true, null, null, UserService.DEFAULT_PAGE_SIZE));
+    }
+
+    @DisplayName("Должен продолжить поиск со значения сортировки и id из курсора.")
+    @Test
+    void search_shouldResumeFromCursor() {
+        UserSearchRequest request = new UserSearchRequest();
+        request.setSort("createdAt");
+        request.setSize(1);
+        when(userJdbcRepository.search(any())).thenReturn(List.of(user), List.of());
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        UserPage first = userService.search(request);
+        request.setCursor(first.getNextCursor());
+        userService.search(request);
+
+        assertNotNull(first.getNextCursor());
+        verify(userJdbcRepository).search(new UserSearchQuery(null, null, null, null, null, null,
+                UserSearchQuery.SortField.CREATED_AT, false, user.getCreatedAt(), 1L, 1));
+    }
+
+    @DisplayName("Должен бросить BadRequestException, если курсор не подходит к сортировке.")
+    @Test
+    void search_shouldThrowBadRequest_whenCursorDoesNotMatchSort() {
+        UserSearchRequest request = new UserSearchRequest();
+        request.setSort("createdAt");
+        request.setCursor("MQ");
 
+        assertThrows(BadRequestException.class, () -> userService.search(request));
+        verifyNoInteractions(userJdbcRepository);
     }
 
-    @DisplayName("Должен обновить пользователя и вернуть ответ.")
+    @DisplayName("Должен обновить пользователя одним запросом и вернуть ответ.")
     @Test
     void update_shouldUpdateAndReturnResponse() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.save(user)).thenReturn(user);
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(user, "old", "test@example.com", 100)));
         when(userMapper.toResponse(user)).thenReturn(response);
 
-        UserResponse updatedUser = userService.update(1L, userUpdateRequest);
+        UserResponse updatedUser = userService.update(1L, userUpdateRequest, null);
 
         assertSame(response, updatedUser);
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(user);
-        verify(userMapper, times(1)).toResponse(user);
+        verify(userCache).evict(1L);
+        verify(userEventOutbox).enqueue(UserEvent.updated(user, Map.of("name", "test")));
+        verify(userJdbcRepository, times(1)).update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Должен при смене email добавить новый email в фильтр, а прежний оставить.")
+    @Test
+    void update_shouldMoveEmailInFilter_whenEmailChanged() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(user, "test", "old@example.com", 100)));
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        userService.update(1L, userUpdateRequest, null);
+
+        verify(emailFilter).added("test@example.com");
+        verifyNoMoreInteractions(emailFilter);
+    }
+
+    @DisplayName("Должен передать в UPDATE время часов JVM, а не часов сессии БД.")
+    @Test
+    void update_shouldPassUpdatedAtFromJvmClock() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(user, "old", "test@example.com", 100)));
+        when(userMapper.toResponse(user)).thenReturn(response);
+        LocalDateTime before = LocalDateTime.now();
+
+        userService.update(1L, userUpdateRequest, null);
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(userJdbcRepository).update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), now.capture());
+        assertFalse(now.getValue().isBefore(before));
+        assertFalse(now.getValue().isAfter(LocalDateTime.now()));
     }
 
     @DisplayName("Должен бросить BadRequestException, при попытке задать пользователю неуникальный(чужой) email.")
     @Test
     void update_shouldThrowBadRequest_whenDuplicateEmail() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         doThrow(new DataIntegrityViolationException("duplicate email"))
-                .when(userRepository).save(user);
+                .when(userJdbcRepository).update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class));
 
-        assertThrows(BadRequestException.class,() -> userService.update(1L, userUpdateRequest));
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(user);
+        assertThrows(BadRequestException.class,() -> userService.update(1L, userUpdateRequest, null));
+        verify(userCache, never()).evict(1L);
     }
 
     @DisplayName("Должен бросить NotFoundException, при попытке обновления, если пользователь не найден.")
     @Test
     void update_shouldThrowNotFoundException() {
-        doThrow(new NotFoundException("not found")).when(userRepository).findById(1L);
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class))).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class,() -> userService.update(1L, userUpdateRequest));
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, never()).save(user);
+        assertThrows(NotFoundException.class,() -> userService.update(1L, userUpdateRequest, null));
+        verify(userCache, never()).evict(1L);
     }
 
-    @DisplayName("Должен обновить выбранные поля и вернуть ответ.")
+    @DisplayName("Должен бросить PreconditionFailedException, если версия из If-Match устарела.")
     @Test
-    void patch_shouldUpdateOnlyProvidedFields() {
+    void update_shouldThrowPreconditionFailed_whenVersionIsStale() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), eq(Set.of(3L)), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        assertThrows(PreconditionFailedException.class, () -> userService.update(1L, userUpdateRequest, VersionPrecondition.anyOf(Set.of(3L))));
+        verify(userCache, never()).evict(1L);
+    }
+
+    @DisplayName("Должен бросить NotFoundException при условном обновлении отсутствующего пользователя.")
+    @Test
+    void update_shouldThrowNotFound_whenConditionalAndUserMissing() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), eq(Set.of(3L)), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.update(1L, userUpdateRequest, VersionPrecondition.anyOf(Set.of(3L))));
+    }
 
-        when(userRepository.save(user)).thenReturn(patchedUser);
+    @DisplayName("Должен бросить PreconditionFailedException при обновлении отсутствующего пользователя с If-Match: *.")
+    @Test
+    void update_shouldThrowPreconditionFailed_whenAnyVersionAndUserMissing() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), eq(Set.of()), any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+        assertThrows(PreconditionFailedException.class, () -> userService.update(1L, userUpdateRequest, VersionPrecondition.EXISTS));
+        verify(userRepository, never()).existsById(1L);
+    }
+
+    @DisplayName("Должен обновить только переданные поля и вернуть ответ.")
+    @Test
+    void patch_shouldUpdateOnlyProvidedFields() {
+        when(userJdbcRepository.update(eq(1L), isNull(), isNull(), eq(25), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(patchedUser, "test", "test@example.com", 100)));
         when(userMapper.toResponse(patchedUser)).thenReturn(patchedUserResponse);
 
-        UserResponse updatedUserResponse = userService.patch(1L, userPatchRequest);
+        UserResponse updatedUserResponse = userService.patch(1L, userPatchRequest, null);
 
         assertEquals(patchedUserResponse.getAge(), updatedUserResponse.getAge());
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(user);
+        verify(userJdbcRepository, times(1)).update(eq(1L), isNull(), isNull(), eq(25), isNull(), any(LocalDateTime.class));
+        verify(userCache).evict(1L);
         verify(userMapper, times(1)).toResponse(patchedUser);
+        verify(userEventOutbox).enqueue(new UserEvent(UserEvent.Operation.UPDATE, 1L, "test@example.com", 0L, Map.of("age", 25)));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Запись с теми же значениями должна опубликовать UPDATE с новой версией и пустыми changes.")
+    @Test
+    void patch_shouldPublishUpdate_whenValuesUnchanged() {
+        when(userJdbcRepository.update(eq(1L), isNull(), isNull(), eq(25), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(patchedUser, "test", "test@example.com", 25)));
+        when(userMapper.toResponse(patchedUser)).thenReturn(patchedUserResponse);
+
+        userService.patch(1L, userPatchRequest, null);
+
+        verify(userEventOutbox).enqueue(new UserEvent(UserEvent.Operation.UPDATE, 1L, "test@example.com", 0L, Map.of()));
+    }
+
+    @DisplayName("PATCH без полей не должен писать строку и публиковать событие, но должен проверить If-Match.")
+    @Test
+    void patch_shouldNotWrite_whenNoFields() {
+        when(userJdbcRepository.findById(1L, Set.of(3L))).thenReturn(Optional.of(patchedUser));
+        when(userMapper.toResponse(patchedUser)).thenReturn(patchedUserResponse);
+
+        UserResponse response = userService.patch(1L, new UserPatchRequest(), VersionPrecondition.anyOf(Set.of(3L)));
+
+        assertSame(patchedUserResponse, response);
+        verify(userJdbcRepository, never()).update(any(), any(), any(), any(), any(), any());
+        verifyNoInteractions(userEventOutbox, userCache);
+    }
+
+    @DisplayName("PATCH без полей с несовпавшей версией должен вернуть 412.")
+    @Test
+    void patch_shouldThrowPreconditionFailed_whenNoFieldsAndVersionMismatch() {
+        when(userJdbcRepository.findById(1L, Set.of(3L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.patch(1L, new UserPatchRequest(), VersionPrecondition.anyOf(Set.of(3L))));
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @DisplayName("Должен обрезать пробелы в имени и email перед обновлением.")
+    @Test
+    void patch_shouldTrimProvidedStrings() {
+        userPatchRequest.setName("  test ");
+        userPatchRequest.setEmail(" test@example.com ");
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(25), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(patchedUser, "test", "test@example.com", 25)));
+        when(userMapper.toResponse(patchedUser)).thenReturn(patchedUserResponse);
+
+        userService.patch(1L, userPatchRequest, null);
+
+        verify(userJdbcRepository).update(eq(1L), eq("test"), eq("test@example.com"), eq(25), isNull(), any(LocalDateTime.class));
     }
 
     @DisplayName("Должен бросить BadRequestException, при попытке задать пользователю неуникальный(чужой) email.")
     @Test
     void patch_shouldThrowBadRequest_whenDuplicateEmail() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        userPatchRequest.setEmail("taken@example.com");
         doThrow(new DataIntegrityViolationException("duplicate email"))
-                .when(userRepository).save(user);
+                .when(userJdbcRepository).update(eq(1L), isNull(), eq("taken@example.com"), eq(25), isNull(), any(LocalDateTime.class));
 
-        assertThrows(BadRequestException.class,() -> userService.patch(1L, userPatchRequest));
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(user);
+        assertThrows(BadRequestException.class,() -> userService.patch(1L, userPatchRequest, null));
+        verify(userCache, never()).evict(1L);
     }
 
     @DisplayName("Должен бросить NotFoundException, при попытке обновления, если пользователь не найден.")
     @Test
     void patch_shouldThrowNotFoundException() {
+        when(userJdbcRepository.update(eq(1L), isNull(), isNull(), eq(25), isNull(), any(LocalDateTime.class))).thenReturn(Optional.empty());
 
-        doThrow(new NotFoundException("not found")).when(userRepository).findById(1L);
+        assertThrows(NotFoundException.class,() -> userService.patch(1L, userPatchRequest, null));
+        verify(userCache, never()).evict(1L);
+    }
 
-        assertThrows(NotFoundException.class,() -> userService.patch(1L, userPatchRequest));
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, never()).save(user);
+    @DisplayName("После фиксации обновления и удаления должен запомнить версию в кэше: ответ старой версии с реплики не вернется в кэш.")
+    @Test
+    void updateAndDelete_shouldRecordVersionAfterCommit() {
+        when(userJdbcRepository.update(eq(1L), eq("test"), eq("test@example.com"), eq(100), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UserJdbcRepository.UpdatedUser(user, "old", "test@example.com", 100)));
+        when(userJdbcRepository.deleteById(1L, null))
+                .thenReturn(Optional.of(new UserJdbcRepository.DeletedUser(1L, "test@example.com", 1L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.update(1L, userUpdateRequest, null);
+            userService.delete(1L, null);
+            verify(userCache, times(2)).evict(1L);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(userCache, times(2)).evict(1L);
+        verify(userCache).applyChange(1L, 0L, false);
+        verify(userCache).applyChange(1L, null, true);
+    }
+
+    @DisplayName("Должен удалить пользователя одним запросом и поставить событие DELETE в outbox.")
+    @Test
+    void delete_shouldDeleteAndEnqueueEvent() {
+        when(userJdbcRepository.deleteById(1L, null)).thenReturn(Optional.of(new UserJdbcRepository.DeletedUser(1L, "test@mail.com", 4L)));
+
+        userService.delete(1L, null);
+
+        verify(userCache).evict(1L);
+        verify(userEventOutbox).enqueue(UserEvent.deleted(1L, "test@mail.com", 4L));
+        verifyNoInteractions(emailFilter);
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Должен бросить PreconditionFailedException при удалении с устаревшей версией.")
+    @Test
+    void delete_shouldThrowPreconditionFailed_whenVersionIsStale() {
+        when(userJdbcRepository.deleteById(1L, Set.of(3L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.delete(1L, VersionPrecondition.anyOf(Set.of(3L))));
+        verifyNoInteractions(userEventOutbox);
+        verify(userCache, never()).evict(1L);
+    }
+
+    @DisplayName("Должен бросить PreconditionFailedException при удалении отсутствующего пользователя с If-Match: *.")
+    @Test
+    void delete_shouldThrowPreconditionFailed_whenAnyVersionAndUserMissing() {
+        when(userJdbcRepository.deleteById(1L, Set.of())).thenReturn(Optional.empty());
+
+        assertThrows(PreconditionFailedException.class, () -> userService.delete(1L, VersionPrecondition.EXISTS));
+        verifyNoInteractions(userEventOutbox);
+        verify(userCache, never()).evict(1L);
+    }
+
+    @DisplayName("Должен молча завершиться без события, если пользователь уже удален.")
+    @Test
+    void delete_shouldBeIdempotent_whenUserMissing() {
+        when(userJdbcRepository.deleteById(1L, null)).thenReturn(Optional.empty());
+
+        userService.delete(1L, null);
+
+        verify(userCache).evict(1L);
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @DisplayName("Должен удалить пользователей по id порциями и поставить события DELETE пачкой.")
+    @Test
+    void deleteByIds_shouldDeleteInChunks() {
+        List<Long> ids = LongStream.rangeClosed(1, UserService.DELETE_CHUNK_SIZE + 1).boxed().toList();
+        when(userJdbcRepository.deleteByIds(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> chunk = inv.getArgument(0);
+            return chunk.stream().map(id -> new UserJdbcRepository.DeletedUser(id, id + "@mail.com", 0L)).toList();
+        });
+
+        long deleted = userService.deleteByIds(ids);
+
+        assertEquals(UserService.DELETE_CHUNK_SIZE + 1, deleted);
+        verify(userJdbcRepository, times(2)).deleteByIds(anyCollection());
+        verify(userEventOutbox).enqueueAll(List.of(UserEvent.deleted((long) UserService.DELETE_CHUNK_SIZE + 1,
+                (UserService.DELETE_CHUNK_SIZE + 1) + "@mail.com", 0L)));
+        verify(userCache).evict((long) UserService.DELETE_CHUNK_SIZE + 1);
     }
 
-    @DisplayName("Должен удалить пользователя из БД.")
+    @DisplayName("После фиксации порции должен запретить кэшировать удаленных пользователей.")
     @Test
-    void delete_shouldCallRepositoryDeleteById() {
-        Long userId = 1L;
-        User user = new User();
-        user.setId(userId);
-        user.setEmail("test@mail.com");
+    void deleteByIds_shouldBlockCachingAfterCommit() {
+        when(userJdbcRepository.deleteByIds(anyCollection()))
+                .thenReturn(List.of(new UserJdbcRepository.DeletedUser(1L, "ivan@mail.com", 0L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.deleteByIds(List.of(1L));
+            verify(userCache).evict(1L);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(userCache, times(1)).evict(1L);
+        verify(userCache).applyChange(1L, null, true);
+    }
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+    @DisplayName("Должен удалять пользователей по дате регистрации, пока порция полная.")
+    @Test
+    void deleteCreatedBefore_shouldLoopUntilPartialChunk() {
+        LocalDateTime before = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<UserJdbcRepository.DeletedUser> full = LongStream.rangeClosed(1, UserService.DELETE_CHUNK_SIZE)
+                .mapToObj(id -> new UserJdbcRepository.DeletedUser(id, id + "@mail.com", 0L))
+                .toList();
+        List<UserJdbcRepository.DeletedUser> last = List.of(new UserJdbcRepository.DeletedUser(9999L, "last@mail.com", 2L));
+        when(userJdbcRepository.deleteCreatedBefore(before, UserService.DELETE_CHUNK_SIZE))
+                .thenReturn(full, last);
+
+        long deleted = userService.deleteCreatedBefore(before);
+
+        assertEquals(UserService.DELETE_CHUNK_SIZE + 1, deleted);
+        verify(userJdbcRepository, times(2)).deleteCreatedBefore(before, UserService.DELETE_CHUNK_SIZE);
+        verify(userEventOutbox).enqueueAll(List.of(UserEvent.deleted(9999L, "last@mail.com", 2L)));
+    }
+
+    @DisplayName("Должен искать пользователя по нормализованному email.")
+    @Test
+    void getByEmail_shouldNormalizeEmail() {
+        when(userCache.getByEmail("test@email.ru")).thenReturn(Optional.empty());
+        when(emailFilter.mightExist("test@email.ru")).thenReturn(true);
+        when(userRepository.findByEmail("test@email.ru")).thenReturn(Optional.of(user));
+        when(userMapper.toResponse(user)).thenReturn(response);
 
-        userService.delete(userId);
+        UserResponse foundUser = userService.getByEmail("  Test@Email.RU ");
 
-        verify(userRepository).deleteById(userId);
+        assertSame(response, foundUser);
+        verify(userRepository).findByEmail("test@email.ru");
     }
 
     @DisplayName("Должен вернуть пользователя по email из БД.")
     @Test
     void getByEmail_shouldReturnUserResponse() {
+        when(emailFilter.mightExist("test@email.ru")).thenReturn(true);
         when(userRepository.findByEmail("test@email.ru")).thenReturn(Optional.of(user));
         when(userMapper.toResponse(user)).thenReturn(response);
 
@@ -249,9 +764,81 @@ class UserServiceTest {
     @DisplayName("Должен бросить NotFoundException, если пользователь по email не найден.")
     @Test
     void getByEmail_shouldThrowNotFoundException() {
+        when(emailFilter.mightExist("test@email.ru")).thenReturn(true);
         when(userRepository.findByEmail("test@email.ru")).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,() -> userService.getByEmail("test@email.ru"));
         verify(userRepository, times(1)).findByEmail("test@email.ru");
     }
-}
\ No newline at end of file
+
+    @DisplayName("Должен бросить NotFoundException без запроса к БД, если email точно отсутствует по фильтру.")
+    @Test
+    void getByEmail_shouldThrowNotFoundWithoutQuery_whenFilterSaysAbsent() {
+        when(userCache.getByEmail("test@email.ru")).thenReturn(Optional.empty());
+        when(emailFilter.mightExist("test@email.ru")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getByEmail("test@email.ru"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Должен проверить занятость email: фильтр, затем кэш, затем БД.")
+    @Test
+    void emailExists_shouldConsultFilterThenCacheThenDatabase() {
+        when(emailFilter.mightExist("free@example.com")).thenReturn(false);
+        when(emailFilter.mightExist("test@example.com")).thenReturn(true);
+        when(emailFilter.mightExist("other@example.com")).thenReturn(true);
+        when(userCache.getByEmail("test@example.com")).thenReturn(Optional.of(response));
+        when(userCache.getByEmail("other@example.com")).thenReturn(Optional.empty());
+        when(userRepository.existsByEmail("other@example.com")).thenReturn(false);
+
+        assertFalse(userService.emailExists(" Free@Example.com"));
+        assertTrue(userService.emailExists("test@example.com"));
+        assertFalse(userService.emailExists("other@example.com"));
+        verify(userRepository, times(1)).existsByEmail(any());
+    }
+
+    @DisplayName("Должен получить пользователей по id и email: кэш, один запрос на тип ключа, без повторов.")
+    @Test
+    void lookup_shouldCombineCacheAndSingleQueries() {
+        UserResponse cached = new UserResponse(2L, "cached", "cached@example.com", 30,
+                response.getCreatedAt(), response.getCreatedAt(), 0L);
+        when(userCache.getById(2L)).thenReturn(Optional.of(cached));
+        when(userJdbcRepository.findByIds(List.of(1L, 9L))).thenReturn(List.of(user));
+        when(emailFilter.mightExist("test@example.com")).thenReturn(true);
+        when(emailFilter.mightExist("nobody@example.com")).thenReturn(true);
+        when(emailFilter.mightExist("absent@example.com")).thenReturn(false);
+        when(userJdbcRepository.findByEmails(List.of("test@example.com", "nobody@example.com"))).thenReturn(List.of(user));
+        when(userMapper.toResponse(user)).thenReturn(response);
+
+        UserLookupRequest request = new UserLookupRequest();
+        request.setIds(List.of(2L, 1L, 2L, 9L));
+        request.setEmails(List.of(" TEST@example.com", "nobody@example.com", "absent@example.com"));
+
+        UserLookupResponse result = userService.lookup(request);
+
+        assertEquals(List.of(cached, response), result.getFound());
+        assertEquals(List.of(9L), result.getMissingIds());
+        assertEquals(List.of("nobody@example.com", "absent@example.com"), result.getMissingEmails());
+        verify(userJdbcRepository, times(1)).findByIds(anyCollection());
+        verify(userJdbcRepository, times(1)).findByEmails(anyCollection());
+        verify(userCache, times(2)).put(response);
+    }
+
+    @DisplayName("Не должен обращаться к БД, если все ключи есть в кэше.")
+    @Test
+    void lookup_shouldNotQueryWhenAllCached() {
+        when(userCache.getById(1L)).thenReturn(Optional.of(response));
+        when(userCache.getByEmail("test@example.com")).thenReturn(Optional.of(response));
+
+        UserLookupRequest request = new UserLookupRequest();
+        request.setIds(List.of(1L));
+        request.setEmails(List.of("test@example.com"));
+
+        UserLookupResponse result = userService.lookup(request);
+
+        assertEquals(List.of(response), result.getFound());
+        assertTrue(result.getMissingIds().isEmpty());
+        assertTrue(result.getMissingEmails().isEmpty());
+        verifyNoInteractions(userJdbcRepository);
+    }
+}
@@ -0,0 +1,217 @@
+package aston.user_service.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+import user_service.cache.EmailExistenceFilter;
+import user_service.dto.UserImportResponse;
+import user_service.exception.BadRequestException;
+import user_service.kafka.UserEvent;
+import user_service.kafka.UserEventOutbox;
+import user_service.mapper.UserMapper;
+import user_service.model.User;
+import user_service.repository.UserJdbcRepository;
+import user_service.service.UserService;
+import user_service.service.UserTransferService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserTransferServiceTest {
+
+    private static final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    private static final String DUPLICATE = "taken@example.com";
+
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+    @Mock
+    private UserEventOutbox userEventOutbox;
+    @Mock
+    private EmailExistenceFilter emailFilter;
+    @Mock
+    private UserService userService;
+
+    private UserTransferService service;
+
+    @BeforeEach
+    void setUp() {
+        Validator validator = validatorFactory.getValidator();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        service = new UserTransferService(userJdbcRepository, userService, new UserMapper(), JsonMapper.builder().build(),
+                validator, userEventOutbox, emailFilter, transactionTemplate);
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    /** Вставка «в базе»: все строки, кроме строк с уже занятым email. */
+    private void stubInsert() {
+        long[] nextId = {100};
+        when(userJdbcRepository.allocateIds(anyInt()))
+                .thenAnswer(inv -> LongStream.range(0, inv.<Integer>getArgument(0)).map(i -> nextId[0]++).toArray());
+        when(userJdbcRepository.insertIgnoringDuplicates(any(), any())).thenAnswer(inv -> {
+            List<UserJdbcRepository.ImportRow> rows = inv.getArgument(0);
+            LocalDateTime now = inv.getArgument(1);
+            return rows.stream()
+                    .filter(row -> !row.email().equals(DUPLICATE))
+                    .map(row -> User.builder().id(row.id()).name(row.name()).email(row.email()).age(row.age())
+                            .createdAt(now).updatedAt(now).version(0L).build())
+                    .toList();
+        });
+    }
+
+    private static InputStream text(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Загрузка NDJSON: ошибки по строкам, дубликаты и события CREATE для созданных")
+    @SuppressWarnings("unchecked")
+    void importNdjsonReportsLineErrors() throws IOException {
+        stubInsert();
+
+        UserImportResponse result = service.importNdjson(text("""
+                {"name":"Ivan","email":"Ivan@Example.com","age":25,"id":1,"version":4}
+
+                {"name":"Petr","email":"taken@example.com","age":30}
+                {"name":"","email":"bad","age":200}
+                {not json
+                {"name":"Anna","email":"anna@example.com","age":40}
+                """));
+
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of(3L, 4L, 5L), result.getErrors().stream().map(UserImportResponse.LineError::getLine).toList());
+        assertEquals(DUPLICATE, result.getErrors().get(0).getEmail());
+        assertEquals("age must be <= 0; email must be valid; name must not be blank", result.getErrors().get(1).getMessage());
+        assertTrue(result.getErrors().get(2).getMessage().startsWith("Malformed JSON"));
+
+        verify(emailFilter).added("ivan@example.com");
+        verify(emailFilter).added("anna@example.com");
+        verify(emailFilter, never()).added(DUPLICATE);
+        ArgumentCaptor<List<UserEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(userEventOutbox).enqueueAll(events.capture());
+        assertEquals(List.of("ivan@example.com", "anna@example.com"),
+                events.getValue().stream().map(UserEvent::email).toList());
+    }
+
+    @Test
+    @DisplayName("Загрузка CSV в gzip: столбцы по заголовку, кавычки и нечисловой возраст")
+    void importGzippedCsv() throws IOException {
+        stubInsert();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(("\uFEFFage,email,name\r\n"
+                    + "25,ivan@example.com,\"Ivanov, Ivan\"\r\n"
+                    + "old,petr@example.com,Petr\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        UserImportResponse result = service.importCsv(new ByteArrayInputStream(compressed.toByteArray()));
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(new UserImportResponse.LineError(3, "petr@example.com", "age must be an integer")),
+                result.getErrors());
+        verify(userJdbcRepository).insertIgnoringDuplicates(
+                eq(List.of(new UserJdbcRepository.ImportRow(100, "Ivanov, Ivan", "ivan@example.com", 25))), any());
+    }
+
+    @Test
+    @DisplayName("Загрузка CSV без обязательного столбца — 400")
+    void importCsvWithoutRequiredColumn() {
+        assertThrows(BadRequestException.class, () -> service.importCsv(text("name,email\nIvan,ivan@example.com\n")));
+        verifyNoInteractions(userJdbcRepository);
+    }
+
+    @Test
+    @DisplayName("Загрузка идет пачками: каждая пачка — отдельная вставка")
+    void importIsChunked() throws IOException {
+        stubInsert();
+        int total = UserTransferService.IMPORT_CHUNK_SIZE + 1;
+        String body = IntStream.range(0, total)
+                .mapToObj(i -> "{\"name\":\"u\",\"email\":\"u" + i + "@example.com\",\"age\":20}")
+                .collect(Collectors.joining("\n"));
+
+        UserImportResponse result = service.importNdjson(text(body));
+
+        assertEquals(total, result.getImported());
+        verify(userJdbcRepository).allocateIds(UserTransferService.IMPORT_CHUNK_SIZE);
+        verify(userJdbcRepository).allocateIds(1);
+        verify(userEventOutbox, times(2)).enqueueAll(any());
+    }
+
+    @Test
+    @DisplayName("Выгрузка: gzip с заголовком CSV и строкой на пользователя")
+    @SuppressWarnings("unchecked")
+    void exportCsv() throws IOException {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        doAnswer(inv -> {
+            Consumer<User> consumer = inv.getArgument(0);
+            consumer.accept(User.builder().id(1L).name("Ivan").email("ivan@example.com").age(25)
+                    .createdAt(time).updatedAt(time).version(0L).build());
+            return null;
+        }).when(userJdbcRepository).streamAll(any(Consumer.class));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(UserTransferService.Format.CSV, out);
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertEquals("id,name,email,age,created_at,updated_at,version\n"
+                + "1,Ivan,ivan@example.com,25,2025-01-02T03:04:05,2025-01-02T03:04:05,0\n", csv);
+    }
+
+    @Test
+    @DisplayName("Выгрузка NDJSON: gzip от потоковой выдачи UserService")
+    void exportNdjson() throws IOException {
+        when(userService.streamAll(any(OutputStream.class))).thenAnswer(inv -> {
+            inv.<OutputStream>getArgument(0).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(UserTransferService.Format.NDJSON, out);
+
+        String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertEquals("{\"id\":1}\n", ndjson);
+        verify(userJdbcRepository, never()).streamAll(any());
+    }
+
+    @Test
+    @DisplayName("Неизвестный формат — 400")
+    void unknownFormat() {
+        assertEquals(UserTransferService.Format.NDJSON, UserTransferService.Format.of(" NDJSON "));
+        assertThrows(BadRequestException.class, () -> UserTransferService.Format.of("xml"));
+    }
+}
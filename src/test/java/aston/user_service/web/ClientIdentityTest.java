@@ -0,0 +1,57 @@
+package aston.user_service.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import user_service.web.ClientIdentity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIdentityTest {
+
+    private final ClientIdentity clientIdentity = new ClientIdentity(List.of("10.0.0.0/8", "192.168.1.5", "fd00::/8"));
+
+    private static MockHttpServletRequest request(String remoteAddr, String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (clientId != null) {
+            request.addHeader(ClientIdentity.HEADER, clientId);
+        }
+        return request;
+    }
+
+    @DisplayName("Заголовок клиента от недоверенного адреса должен игнорироваться.")
+    @Test
+    void of_shouldIgnoreHeader_fromUntrustedAddress() {
+        assertEquals("203.0.113.7", clientIdentity.of(request("203.0.113.7", "spoofed")));
+        assertEquals("192.168.1.6", clientIdentity.of(request("192.168.1.6", "spoofed")));
+    }
+
+    @DisplayName("Заголовок клиента от доверенного прокси (адрес или подсеть) должен учитываться.")
+    @Test
+    void of_shouldUseHeader_fromTrustedProxy() {
+        assertEquals("mobile-app", clientIdentity.of(request("10.20.30.40", "mobile-app")));
+        assertEquals("mobile-app", clientIdentity.of(request("192.168.1.5", "mobile-app")));
+        assertEquals("mobile-app", clientIdentity.of(request("fd12:3456::1", "mobile-app")));
+        assertEquals("10.20.30.40", clientIdentity.of(request("10.20.30.40", " ")));
+    }
+
+    @DisplayName("Аутентифицированный пользователь должен определять клиента независимо от заголовка.")
+    @Test
+    void of_shouldPreferPrincipal() {
+        MockHttpServletRequest request = request("10.20.30.40", "mobile-app");
+        request.setUserPrincipal(() -> "ivan");
+
+        assertEquals("ivan", clientIdentity.of(request));
+    }
+
+    @DisplayName("Без настроенных прокси заголовок не учитывается; некорректный адрес прокси — ошибка.")
+    @Test
+    void of_shouldIgnoreHeader_whenNoTrustedProxies() {
+        assertEquals("127.0.0.1", new ClientIdentity(List.of()).of(request("127.0.0.1", "spoofed")));
+        assertThrows(IllegalArgumentException.class, () -> new ClientIdentity(List.of("proxy.local")));
+        assertThrows(IllegalArgumentException.class, () -> new ClientIdentity(List.of("10.0.0.0/33")));
+    }
+}
@@ -0,0 +1,181 @@
+package aston.user_service.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import user_service.controller.UserController;
+import user_service.dto.UserResponse;
+import user_service.exception.GlobalExceptionHandler;
+import user_service.hateoas.UserModelAssembler;
+import user_service.metrics.UserMetrics;
+import user_service.ratelimit.AimdLimiter;
+import user_service.ratelimit.RateLimitProperties;
+import user_service.ratelimit.RequestBudget;
+import user_service.ratelimit.RequestLimiters;
+import user_service.ratelimit.TokenBucket;
+import user_service.service.UserService;
+import user_service.web.ClientIdentity;
+import user_service.web.RateLimitInterceptor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitInterceptorTest {
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private UserModelAssembler assembler = new UserModelAssembler();
+
+    @InjectMocks
+    private UserController userController;
+
+    private MockMvc mockMvc;
+    private RequestLimiters limiters;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        setUpLimits(new RateLimitProperties.Limits(1000, 1000, 1000, 1000, 1, 1, 1, Duration.ofSeconds(1)));
+        LocalDateTime now = LocalDateTime.now();
+        UserResponse user = new UserResponse(1L, "Ivan", "ivan@example.com", 25, now, now, 0L);
+        lenient().when(userService.getById(1L)).thenReturn(user);
+    }
+
+    private void setUpLimits(RateLimitProperties.Limits write) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRead(new RateLimitProperties.Limits(0.001, 2, 1000, 1000, 1, 1, 1, Duration.ofSeconds(1)));
+        properties.setWrite(write);
+        limiters = new RequestLimiters(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .addInterceptors(new RateLimitInterceptor(limiters, new ClientIdentity(List.of("127.0.0.1")),
+                        new UserMetrics(meterRegistry)))
+                .setControllerAdvice(new GlobalExceptionHandler(false))
+                .build();
+    }
+
+    @DisplayName("Должен отвечать 429 с Retry-After, когда клиент исчерпал свой бакет чтений.")
+    @Test
+    void shouldReturn429_whenClientBucketExhausted() throws Exception {
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.error").value("TOO_MANY_REQUESTS"));
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "b")).andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get(UserMetrics.RATE_LIMITED_COUNTER).tag("reason", "client").counter().count());
+    }
+
+    @DisplayName("Должен отвечать 503 с Retry-After, когда исчерпан лимит одновременных запросов.")
+    @Test
+    void shouldReturn503_whenConcurrencyExhausted() throws Exception {
+        AimdLimiter.Permit busy = limiters.concurrency(RequestBudget.READ).tryAcquire();
+        assertNotNull(busy);
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        busy.releaseWithoutSample();
+        mockMvc.perform(get("/api/users/1")).andExpect(status().isOk());
+        assertEquals(0, limiters.concurrency(RequestBudget.READ).inFlight());
+    }
+
+    @DisplayName("Отказ по лимиту одновременных запросов не должен расходовать бакет клиента.")
+    @Test
+    void shouldNotSpendClientToken_whenConcurrencyRejects() throws Exception {
+        AimdLimiter.Permit busy = limiters.concurrency(RequestBudget.READ).tryAcquire();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a"))
+                    .andExpect(status().isServiceUnavailable());
+        }
+        busy.releaseWithoutSample();
+
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").header(ClientIdentity.HEADER, "a")).andExpect(status().isOk());
+        assertEquals(3, meterRegistry.get(UserMetrics.RATE_LIMITED_COUNTER).tag("reason", "concurrency").counter().count());
+    }
+
+    @DisplayName("Отказ по бакету эндпоинта не должен расходовать бакет клиента.")
+    @Test
+    void shouldNotSpendClientToken_whenEndpointRejects() throws Exception {
+        setUpLimits(new RateLimitProperties.Limits(0.001, 2, 0.001, 1, 1000, 1, 1000, Duration.ofSeconds(1)));
+
+        mockMvc.perform(delete("/api/users/1").header(ClientIdentity.HEADER, "a")).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/users/1").header(ClientIdentity.HEADER, "a"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(delete("/api/users/1").header(ClientIdentity.HEADER, "a"))
+                .andExpect(status().isTooManyRequests());
+
+        TokenBucket client = limiters.client("a", RequestBudget.WRITE);
+        assertEquals(0, client.tryAcquire());
+        assertTrue(client.tryAcquire() > 0);
+        assertEquals(2, meterRegistry.get(UserMetrics.RATE_LIMITED_COUNTER).tag("reason", "endpoint").counter().count());
+    }
+
+    @DisplayName("Чтения и записи должны расходовать раздельные бюджеты; POST /lookup — чтение.")
+    @Test
+    void shouldSeparateReadAndWriteBudgets() throws Exception {
+        AimdLimiter.Permit busy = limiters.concurrency(RequestBudget.READ).tryAcquire();
+
+        mockMvc.perform(post("/api/users/lookup").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[1]}"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(delete("/api/users/1")).andExpect(status().isNoContent());
+
+        busy.releaseWithoutSample();
+    }
+
+    @DisplayName("Долгая массовая операция не должна урезать лимит записей, долгая одиночная — должна.")
+    @Test
+    void shouldNotSampleLatencyOfBulkRequests() throws Exception {
+        setUpLimits(new RateLimitProperties.Limits(1000, 1000, 1000, 1000, 10, 2, 20, Duration.ofNanos(1)));
+        AimdLimiter writes = limiters.concurrency(RequestBudget.WRITE);
+        when(userService.deleteByIds(List.of(1L, 2L))).thenReturn(2L);
+
+        mockMvc.perform(delete("/api/users").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[1,2]}"))
+                .andExpect(status().isOk());
+        assertEquals(10, writes.limit());
+        assertEquals(0, writes.inFlight());
+
+        mockMvc.perform(delete("/api/users/1")).andExpect(status().isNoContent());
+        assertTrue(writes.limit() < 10);
+    }
+
+    @DisplayName("Потоковая выгрузка должна отдавать разрешение, как только началась запись ответа.")
+    @Test
+    void shouldReleasePermit_whenStreamingStarts() throws Exception {
+        AimdLimiter reads = limiters.concurrency(RequestBudget.READ);
+        int limit = reads.limit();
+
+        mockMvc.perform(get("/api/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted());
+
+        assertEquals(0, reads.inFlight());
+        assertEquals(limit, reads.limit());
+        mockMvc.perform(get("/api/users/1")).andExpect(status().isOk());
+    }
+}